@@ -0,0 +1,86 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Checks that a background drawn from a fresh decode and from the disk cache covers the layer
+ * pixel for pixel, whatever the density of the layer canvas.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapDecoderTest {
+
+    /* Not a multiple of the resource size, so the decoder has to scale through the density. */
+    private static final int SIZE = 454;
+
+    private Context mContext;
+    private File mCacheDir;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mCacheDir = new File(mContext.getCacheDir(), "bitmap-decoder-test");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mCacheDir.delete();
+    }
+
+    @Test
+    public void decodedAndDiskCachedBitmapsDrawTheSame() {
+        Bitmap decoded = BitmapDecoder.decodeToSize(mContext.getResources(), R.drawable.bg,
+                SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        assertEquals(SIZE, decoded.getWidth());
+        assertEquals(SIZE, decoded.getHeight());
+
+        DiskBitmapCache cache = new DiskBitmapCache(mCacheDir, Long.MAX_VALUE, "test");
+        cache.put("bg", decoded);
+        Bitmap cached = cache.get("bg");
+        assertNotNull(cached);
+
+        int[] fromDecode = drawOnLayer(decoded);
+        int[] fromCache = drawOnLayer(cached);
+        assertArrayEquals(pixels(decoded), fromDecode);
+        assertArrayEquals(fromDecode, fromCache);
+
+        decoded.recycle();
+        cached.recycle();
+    }
+
+    /* Draws like the renderer's layers do: at the origin, onto a bitmap of device density. */
+    private static int[] drawOnLayer(Bitmap bitmap) {
+        Bitmap layer = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        new Canvas(layer).drawBitmap(bitmap, 0, 0, null);
+        int[] pixels = pixels(layer);
+        layer.recycle();
+        return pixels;
+    }
+
+    private static int[] pixels(Bitmap bitmap) {
+        int[] pixels = new int[SIZE * SIZE];
+        bitmap.getPixels(pixels, 0, SIZE, 0, 0, SIZE, SIZE);
+        return pixels;
+    }
+}
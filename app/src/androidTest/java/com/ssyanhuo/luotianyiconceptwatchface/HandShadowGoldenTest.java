@@ -0,0 +1,113 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks that the cached hand shadows give exactly the pixels of the shadow layers they replace,
+ * drawn in place on the software canvas, at every angle the face shows. Runs on a device, since
+ * it needs the real blur.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HandShadowGoldenTest {
+
+    private static final int SIZE = 454;
+    private static final float CENTER = SIZE / 2f;
+    /* Stands in for the dial under the minute hand. */
+    private static final int BACKGROUND = 0xFF808080;
+
+    private Bitmap mExpected;
+    private Bitmap mActual;
+    private int[] mExpectedPixels;
+    private int[] mActualPixels;
+
+    @Before
+    public void setUp() {
+        mExpected = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        mActual = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        mExpectedPixels = new int[SIZE * SIZE];
+        mActualPixels = new int[SIZE * SIZE];
+    }
+
+    @After
+    public void tearDown() {
+        mExpected.recycle();
+        mActual.recycle();
+    }
+
+    @Test
+    public void bakedShadowMatchesShadowLayer() {
+        Path hand = new Path();
+        ConceptWatchFaceRenderer.buildMinuteHandPath(hand, CENTER, CENTER, CENTER * 0.75f);
+        Paint handPaint = ConceptWatchFaceRenderer.newMinuteHandPaint();
+        Paint layerPaint = new Paint(handPaint);
+        layerPaint.setShadowLayer(ConceptWatchFaceRenderer.SHADOW_RADIUS, 0, 0, Color.BLACK);
+        BakedShadow shadow = new BakedShadow(hand, handPaint,
+                ConceptWatchFaceRenderer.SHADOW_RADIUS, new BitmapPool(0));
+
+        for (int minute = 0; minute < 60; minute++) {
+            float degrees = minute * 6f;
+            Canvas expected = newCanvas(mExpected, BACKGROUND);
+            expected.rotate(degrees, CENTER, CENTER);
+            expected.drawPath(hand, layerPaint);
+
+            Canvas actual = newCanvas(mActual, BACKGROUND);
+            shadow.draw(actual, degrees, CENTER, CENTER);
+            actual.rotate(degrees, CENTER, CENTER);
+            actual.drawPath(hand, handPaint);
+
+            assertSamePixels("minute " + minute);
+        }
+        shadow.invalidate();
+    }
+
+    @Test
+    public void spriteMatchesHourHandDrawnInPlace() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AssetLoader loader = new AssetLoader(context,
+                new AssetRegistry("golden-test-bitmaps", 4 * 1024 * 1024));
+        ConceptWatchFaceRenderer renderer = new ConceptWatchFaceRenderer(new FrameStats());
+        renderer.setSurfaceSize(SIZE, SIZE);
+        renderer.setAssets(loader.loadAssets(SIZE, SIZE, PixelProcessor.STYLE_GRAY));
+        HandSpriteCache sprites = new HandSpriteCache(renderer, new BitmapPool(0), Color.BLACK);
+        sprites.setSize(SIZE, SIZE);
+
+        /* Every angle the hour hand is shown at, drawn first on the black frame. */
+        for (int minute = 0; minute < 12 * 60; minute++) {
+            float degrees = minute / 2f;
+            renderer.paintHand(newCanvas(mExpected, Color.BLACK), 0, degrees);
+            newCanvas(mActual, Color.BLACK).drawBitmap(sprites.getSprite(0, degrees), 0, 0,
+                    null);
+
+            assertSamePixels("minute " + minute);
+        }
+        sprites.release();
+        renderer.release();
+        loader.release();
+    }
+
+    private static Canvas newCanvas(Bitmap bitmap, int background) {
+        bitmap.eraseColor(background);
+        return new Canvas(bitmap);
+    }
+
+    private void assertSamePixels(String message) {
+        mExpected.getPixels(mExpectedPixels, 0, SIZE, 0, 0, SIZE, SIZE);
+        mActual.getPixels(mActualPixels, 0, SIZE, 0, 0, SIZE, SIZE);
+        assertArrayEquals(message, mExpectedPixels, mActualPixels);
+    }
+}
@@ -0,0 +1,268 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders every minute of a 12 hour cycle, in every mode and at several surface sizes, through
+ * the same pipeline as the engine but driven by a stepping clock. Each mode and size is a job on
+ * its own renderer, and jobs run on a pool of worker threads. The throughput is reported per
+ * job.
+ * <p>
+ * Every {@link #GOLDEN_STEP_MINUTES}th frame is compared against a golden frame from the test
+ * assets, {@code timelapse/<mode>_<size>x<size>/<hhmm>.png}. Only frames that do not match are
+ * written out, each next to a diff that marks the changed pixels. When recording, the sampled
+ * frames are written instead, to be copied into {@code src/androidTest/assets/timelapse}.
+ * Assets come from a registry and disk cache of their own.
+ */
+class TimeLapseRenderer {
+
+    private static final String TAG = "TimeLapseRenderer";
+
+    static final int[] DEFAULT_SIZES = {320, 360, 390, 454};
+
+    private static final String[] MODE_NAMES = {
+            "interactive", "ambient", "lowbit", "burnin", "mute"
+    };
+    private static final ModeState[] MODES = {
+            ModeState.INTERACTIVE,
+            ModeState.INTERACTIVE.withAmbient(true),
+            ModeState.INTERACTIVE.withProperties(true, false).withAmbient(true),
+            ModeState.INTERACTIVE.withProperties(false, true).withAmbient(true),
+            ModeState.INTERACTIVE.withMuteMode(true)
+    };
+    private static final int[] AMBIENT_STYLES = {
+            PixelProcessor.STYLE_GRAY, PixelProcessor.STYLE_GRAY, PixelProcessor.STYLE_LOW_BIT,
+            PixelProcessor.STYLE_BURN_IN, PixelProcessor.STYLE_GRAY
+    };
+
+    private static final int FRAMES = 12 * 60;
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /* Coprime with 60, so the golden frames cover many minute and hour hand positions. */
+    static final int GOLDEN_STEP_MINUTES = 47;
+    private static final String GOLDEN_ASSET_DIR = "timelapse";
+
+    /* Marks changed pixels in a diff; unchanged ones are dimmed. */
+    private static final int DIFF_COLOR = 0xFFFF00FF;
+
+    /* Room for every asset variant of the default sizes. */
+    private static final String DISK_CACHE_DIR = "timelapse-bitmaps";
+    private static final long DISK_CACHE_MAX_BYTES = 16 * 1024 * 1024;
+
+    private final Context mContext;
+    private final AssetManager mGoldenAssets;
+    private final File mOutputDir;
+    private final AssetRegistry mRegistry =
+            new AssetRegistry(DISK_CACHE_DIR, DISK_CACHE_MAX_BYTES);
+
+    /**
+     * Renders the app in {@code context}, compares against golden frames in {@code
+     * goldenAssets} and writes failures and recordings to {@code outputDir}.
+     */
+    TimeLapseRenderer(Context context, AssetManager goldenAssets, File outputDir) {
+        mContext = context.getApplicationContext();
+        mGoldenAssets = goldenAssets;
+        mOutputDir = outputDir;
+    }
+
+    /**
+     * Renders all jobs and writes a report to {@code report.txt} in the output directory and to
+     * the log. With {@code record} set, the sampled frames are written as new golden frames
+     * instead of compared. Returns the number of frames that did not match their golden frame.
+     */
+    int run(int[] sizes, boolean record) {
+        AssetLoader loader = new AssetLoader(mContext, mRegistry);
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Job> jobs = new ArrayList<>();
+        List<Future<String>> results = new ArrayList<>();
+        long start = SystemClock.elapsedRealtime();
+        for (int size : sizes) {
+            for (int mode = 0; mode < MODES.length; mode++) {
+                Job job = new Job(loader, mode, size, record);
+                jobs.add(job);
+                results.add(executor.submit(job));
+            }
+        }
+
+        StringBuilder report = new StringBuilder();
+        int mismatched = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                report.append(results.get(i).get()).append('\n');
+                mismatched += jobs.get(i).mMismatchedFrames;
+            } catch (Exception e) {
+                Log.e(TAG, "job failed", e);
+                report.append("failed: ").append(e).append('\n');
+                mismatched++;
+            }
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        report.append(String.format(Locale.US, "total: %d frames in %d ms, %.1f fps",
+                results.size() * FRAMES, elapsed,
+                results.size() * FRAMES * 1000f / Math.max(elapsed, 1)));
+
+        executor.shutdown();
+        loader.release();
+        writeReport(report.toString());
+        return mismatched;
+    }
+
+    private void writeReport(String report) {
+        Log.i(TAG, report);
+        if (!mOutputDir.isDirectory() && !mOutputDir.mkdirs()) {
+            Log.w(TAG, "cannot create " + mOutputDir);
+            return;
+        }
+        try (PrintWriter writer = new PrintWriter(new File(mOutputDir, "report.txt"))) {
+            writer.println(report);
+        } catch (IOException e) {
+            Log.w(TAG, "cannot write report", e);
+        }
+    }
+
+    /**
+     * One mode at one size: a full cycle on its own renderer, which is not thread safe.
+     */
+    private class Job implements Callable<String> {
+        private final AssetLoader mLoader;
+        private final int mMode;
+        private final int mSize;
+        private final boolean mRecord;
+        private long mMillis;
+        private int mMismatchedFrames;
+
+        Job(AssetLoader loader, int mode, int size, boolean record) {
+            mLoader = loader;
+            mMode = mode;
+            mSize = size;
+            mRecord = record;
+        }
+
+        @Override
+        public String call() throws IOException {
+            String name = MODE_NAMES[mMode] + "_" + mSize + "x" + mSize;
+            File frameDir = new File(mOutputDir, (mRecord ? GOLDEN_ASSET_DIR : "failures")
+                    + File.separator + name);
+
+            ConceptWatchFaceRenderer renderer = new ConceptWatchFaceRenderer(new FrameStats());
+            renderer.setSurfaceSize(mSize, mSize);
+            renderer.setAssets(mLoader.loadAssets(mSize, mSize, AMBIENT_STYLES[mMode]));
+            TimeSource timeSource = new TimeSource(new TimeSource.Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return mMillis;
+                }
+            }, TimeZone.getTimeZone("UTC"));
+
+            Bitmap frame = Bitmap.createBitmap(mSize, mSize, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(frame);
+            int[] pixels = new int[mSize * mSize];
+            int[] goldenPixels = new int[mSize * mSize];
+            long renderNanos = 0;
+            int comparedFrames = 0;
+
+            for (int minute = 0; minute < FRAMES; minute++) {
+                mMillis = minute * MINUTE_MS;
+                long start = System.nanoTime();
+                renderer.render(canvas, timeSource.update(), MODES[mMode]);
+                renderNanos += System.nanoTime() - start;
+
+                if (minute % GOLDEN_STEP_MINUTES != 0) {
+                    continue;
+                }
+                String fileName = String.format(Locale.US, "%02d%02d", minute / 60, minute % 60);
+                if (mRecord) {
+                    writePng(frame, frameDir, fileName + ".png");
+                    continue;
+                }
+                if (!readGolden(name + "/" + fileName + ".png", goldenPixels)) {
+                    continue;
+                }
+                comparedFrames++;
+                frame.getPixels(pixels, 0, mSize, 0, 0, mSize, mSize);
+                if (markDifferences(pixels, goldenPixels)) {
+                    mMismatchedFrames++;
+                    writePng(frame, frameDir, fileName + ".png");
+                    frame.setPixels(goldenPixels, 0, mSize, 0, 0, mSize, mSize);
+                    writePng(frame, frameDir, fileName + "-diff.png");
+                }
+            }
+
+            renderer.release();
+            frame.recycle();
+            float renderMs = renderNanos / 1e6f;
+            return String.format(Locale.US,
+                    "%s: %d frames, render %.1f ms (%.1f fps), golden %d/%d mismatched",
+                    name, FRAMES, renderMs, FRAMES * 1000f / Math.max(renderMs, 0.001f),
+                    mMismatchedFrames, comparedFrames);
+        }
+
+        /* Returns false if there is no golden frame of this size. */
+        private boolean readGolden(String path, int[] goldenPixels) throws IOException {
+            Bitmap bitmap;
+            try (InputStream in = mGoldenAssets.open(GOLDEN_ASSET_DIR + "/" + path)) {
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inScaled = false;
+                options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+                bitmap = BitmapFactory.decodeStream(in, null, options);
+            } catch (FileNotFoundException e) {
+                return false;
+            }
+            if (bitmap == null || bitmap.getWidth() != mSize || bitmap.getHeight() != mSize) {
+                throw new IOException("unreadable golden frame " + path);
+            }
+            bitmap.getPixels(goldenPixels, 0, mSize, 0, 0, mSize, mSize);
+            bitmap.recycle();
+            return true;
+        }
+
+        /*
+         * Turns goldenPixels into a diff against pixels: changed pixels are marked, the rest is
+         * dimmed. Returns whether any pixel changed.
+         */
+        private boolean markDifferences(int[] pixels, int[] goldenPixels) {
+            boolean changed = false;
+            for (int i = 0; i < pixels.length; i++) {
+                if (pixels[i] != goldenPixels[i]) {
+                    goldenPixels[i] = DIFF_COLOR;
+                    changed = true;
+                } else {
+                    goldenPixels[i] = 0xFF000000 | ((goldenPixels[i] >> 2) & 0x3F3F3F);
+                }
+            }
+            return changed;
+        }
+
+        private void writePng(Bitmap bitmap, File dir, String fileName) throws IOException {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("cannot create " + dir);
+            }
+            try (FileOutputStream out = new FileOutputStream(new File(dir, fileName))) {
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Bundle;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs a {@link TimeLapseRenderer} over every mode and size. Sizes can be picked with
+ * {@code -e sizes 320,454}, and {@code -e record true} records new golden frames instead of
+ * comparing. Results land in the app's external files, under {@code timelapse}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TimeLapseTest {
+
+    @Test
+    public void framesMatchGoldenFrames() {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        Context context = instrumentation.getTargetContext();
+        File outputDir = context.getExternalFilesDir("timelapse");
+        if (outputDir == null) {
+            outputDir = new File(context.getFilesDir(), "timelapse");
+        }
+        boolean record = "true".equals(arguments.getString("record"));
+
+        TimeLapseRenderer renderer = new TimeLapseRenderer(context,
+                instrumentation.getContext().getAssets(), outputDir);
+        int mismatched = renderer.run(parseSizes(arguments.getString("sizes")), record);
+        assertEquals("frames not matching their golden frame, see " + outputDir,
+                0, mismatched);
+    }
+
+    private static int[] parseSizes(String sizes) {
+        if (sizes == null) {
+            return TimeLapseRenderer.DEFAULT_SIZES;
+        }
+        String[] parts = sizes.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Integer.parseInt(parts[i].trim());
+        }
+        return result;
+    }
+}
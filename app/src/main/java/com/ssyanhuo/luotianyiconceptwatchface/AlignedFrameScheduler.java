@@ -0,0 +1,19 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+/**
+ * Schedules frames on the boundaries of a fixed period, which should be the smallest unit the
+ * face actually shows (a minute for this face).
+ */
+class AlignedFrameScheduler implements FrameScheduler {
+
+    private final long mPeriodMs;
+
+    AlignedFrameScheduler(long periodMs) {
+        mPeriodMs = periodMs;
+    }
+
+    @Override
+    public long getDelayToNextFrame(long nowMs) {
+        return mPeriodMs - (nowMs % mPeriodMs);
+    }
+}
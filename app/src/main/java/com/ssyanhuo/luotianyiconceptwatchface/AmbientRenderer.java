@@ -0,0 +1,126 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+/**
+ * Renders ambient mode on low-bit and burn-in protected screens. The static part of the face
+ * is drawn once per surface size into a cached bitmap, the hour numerals come from the
+ * {@link GlyphAtlas}, and the minute hand is kept as sixty pre-rotated paths, so a frame is two
+ * blits and one path. For burn-in protection the whole frame is shifted by a few pixels each
+ * minute by moving the cached layers instead of redrawing them.
+ */
+class AmbientRenderer {
+
+    /*
+     * Burn-in offsets cycled through once per minute. They stay within a few pixels of the
+     * original position so the shift is not noticeable.
+     */
+    private static final int[][] BURN_IN_OFFSETS = {
+            {0, 0}, {3, 0}, {3, 3}, {0, 3}, {-3, 3}, {-3, 0}, {-3, -3}, {0, -3}
+    };
+
+    /**
+     * Paints the ambient content that gets cached.
+     */
+    interface Painter {
+        /**
+         * Paints everything that does not move: background, ticks and logo.
+         */
+        void paintAmbientLayer(Canvas canvas);
+    }
+
+    private final Painter mPainter;
+    private final GlyphAtlas mGlyphs;
+    private final BitmapPool mPool;
+    private final Paint mHandPaint;
+    private final Paint mCenterPaint;
+    private final float mCenterRadius;
+    private final Path[] mMinuteHands = new Path[60];
+    private Bitmap mLayer;
+    private int mWidth;
+    private int mHeight;
+    private float mCenterX;
+    private float mCenterY;
+
+    AmbientRenderer(Painter painter, GlyphAtlas glyphs, BitmapPool pool, Paint handPaint,
+                    Paint centerPaint, float centerRadius) {
+        mPainter = painter;
+        mGlyphs = glyphs;
+        mPool = pool;
+        mHandPaint = handPaint;
+        mCenterPaint = centerPaint;
+        mCenterRadius = centerRadius;
+        for (int i = 0; i < mMinuteHands.length; i++) {
+            mMinuteHands[i] = new Path();
+        }
+    }
+
+    /**
+     * Sets the surface geometry. {@code minuteHand} points at 12 o'clock.
+     */
+    void setGeometry(int width, int height, Path minuteHand) {
+        release();
+        mWidth = width;
+        mHeight = height;
+        mCenterX = width / 2f;
+        mCenterY = height / 2f;
+
+        Matrix matrix = new Matrix();
+        for (int minute = 0; minute < mMinuteHands.length; minute++) {
+            matrix.setRotate(minute * 6f, mCenterX, mCenterY);
+            minuteHand.transform(matrix, mMinuteHands[minute]);
+        }
+    }
+
+    /**
+     * Drops the cached layer so it is repainted with the current style.
+     */
+    void invalidate() {
+        if (mLayer != null) {
+            mPool.release(mLayer);
+            mLayer = null;
+        }
+    }
+
+    /**
+     * Draws a frame for {@code hour} (1 to 12) and {@code minute}, shifted for burn-in
+     * protection if {@code shift} is set.
+     */
+    void draw(Canvas canvas, int hour, int minute, boolean shift) {
+        int dx = 0;
+        int dy = 0;
+        if (shift) {
+            int[] offset = BURN_IN_OFFSETS[minute % BURN_IN_OFFSETS.length];
+            dx = offset[0];
+            dy = offset[1];
+        }
+
+        canvas.drawBitmap(getLayer(), dx, dy, null);
+        mGlyphs.drawHourNumber(canvas, DialLayerCache.MODE_AMBIENT, hour, dx, dy);
+
+        canvas.save();
+        canvas.translate(dx, dy);
+        canvas.drawPath(mMinuteHands[minute], mHandPaint);
+        canvas.drawCircle(mCenterX, mCenterY, mCenterRadius, mCenterPaint);
+        canvas.restore();
+    }
+
+    void release() {
+        invalidate();
+        mWidth = 0;
+        mHeight = 0;
+    }
+
+    private Bitmap getLayer() {
+        if (mLayer == null) {
+            /* Ambient content is drawn on black, so the layer can be opaque. */
+            mLayer = mPool.acquire(mWidth, mHeight, Bitmap.Config.RGB_565);
+            mPainter.paintAmbientLayer(new Canvas(mLayer));
+        }
+        return mLayer;
+    }
+}
@@ -0,0 +1,185 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Typeface;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the watch face assets for a surface size on a background thread, in stages, and hands
+ * the result back on the main thread. Only the result of the most recent request is delivered.
+ * Assets come from the shared {@link AssetRegistry}, so engines of the same size get the same
+ * bitmaps. Results that are dropped give their bitmaps back to the registry.
+ */
+class AssetLoader {
+
+    private static final String TAG = "AssetLoader";
+
+    static final int STAGE_TYPEFACE = 0;
+    static final int STAGE_BACKGROUND = 1;
+    static final int STAGE_AMBIENT_BACKGROUND = 2;
+    static final int STAGE_HOUR_HAND = 3;
+    static final int STAGE_COUNT = 4;
+
+    private static final String[] STAGE_NAMES = {
+            "typeface", "background", "ambient background", "hour hand"
+    };
+
+    /**
+     * Receives loaded assets on the main thread.
+     */
+    interface Callback {
+        void onAssetsLoaded(Assets assets);
+    }
+
+    /**
+     * Assets scaled for one surface size. The bitmaps belong to the {@link AssetRegistry}; whoever
+     * holds the assets gives them back with {@link #release()} once they are no longer drawn.
+     */
+    static class Assets {
+        private final AssetRegistry mRegistry;
+        final int width;
+        final int height;
+        Typeface typeface;
+        Bitmap background;
+        /* Background for ambient mode, in one of the PixelProcessor styles. */
+        Bitmap ambientBackground;
+        int ambientStyle;
+        Bitmap hourHand;
+        /* How long each loading stage took, for dumpsys. */
+        final long[] stageTimesMs = new long[STAGE_COUNT];
+
+        Assets(AssetRegistry registry, int width, int height) {
+            mRegistry = registry;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Gives the bitmaps back to the registry. The assets must not be drawn afterwards.
+         */
+        void release() {
+            mRegistry.releaseBitmap(background);
+            mRegistry.releaseBitmap(ambientBackground);
+            mRegistry.releaseBitmap(hourHand);
+            background = null;
+            ambientBackground = null;
+            hourHand = null;
+        }
+
+        void dump(String prefix, PrintWriter writer) {
+            writer.print(prefix);
+            writer.print("Asset load (" + width + "x" + height + "):");
+            for (int i = 0; i < STAGE_COUNT; i++) {
+                writer.print(" " + STAGE_NAMES[i] + "=" + stageTimesMs[i] + "ms");
+            }
+            writer.println();
+        }
+    }
+
+    private final Context mContext;
+    private final AssetRegistry mRegistry;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    /* Only touched on the main thread. */
+    private int mGeneration;
+
+    AssetLoader(Context context, AssetRegistry registry) {
+        mContext = context.getApplicationContext();
+        mRegistry = registry;
+    }
+
+    /**
+     * Starts loading assets for a {@code width} x {@code height} surface. Any earlier request
+     * that has not been delivered yet is dropped.
+     */
+    void load(final int width, final int height, final int ambientStyle,
+              final Callback callback) {
+        final int generation = ++mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Assets assets = loadAssets(width, height, ambientStyle);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            callback.onAssetsLoaded(assets);
+                        } else {
+                            assets.release();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops pending requests and stops the loader thread. A load that is already running still
+     * finishes, and its result is released instead of delivered.
+     */
+    void release() {
+        mGeneration++;
+        mExecutor.shutdown();
+    }
+
+    /**
+     * Loads assets on the calling thread, for callers that bring their own worker threads. The
+     * caller owns the result and has to release it.
+     */
+    Assets loadAssets(int width, int height, int ambientStyle) {
+        Resources resources = mContext.getResources();
+        Assets assets = new Assets(mRegistry, width, height);
+
+        long start = SystemClock.elapsedRealtime();
+        assets.typeface = mRegistry.getTypeface(mContext, "font/simhei.ttf");
+        start = endStage(assets, STAGE_TYPEFACE, start);
+
+        /* Decode the background image (more efficient) straight at the surface width. */
+        BitmapFactory.Options bounds = BitmapDecoder.decodeBounds(resources, R.drawable.bg);
+        float scale = ((float) width) / (float) bounds.outWidth;
+        int backgroundWidth = (int) (bounds.outWidth * scale);
+        int backgroundHeight = (int) (bounds.outHeight * scale);
+        assets.background = mRegistry.getScaledBitmap(mContext, R.drawable.bg,
+                backgroundWidth, backgroundHeight);
+        start = endStage(assets, STAGE_BACKGROUND, start);
+
+        assets.ambientStyle = ambientStyle;
+        assets.ambientBackground = mRegistry.getAmbientBitmap(mContext, R.drawable.bg,
+                backgroundWidth, backgroundHeight, ambientStyle);
+        start = endStage(assets, STAGE_AMBIENT_BACKGROUND, start);
+
+        assets.hourHand = mRegistry.getScaledBitmap(mContext, R.drawable.hour, width, width);
+        endStage(assets, STAGE_HOUR_HAND, start);
+
+        return assets;
+    }
+
+    private static long endStage(Assets assets, int stage, long start) {
+        long end = SystemClock.elapsedRealtime();
+        assets.stageTimesMs[stage] = end - start;
+        Log.d(TAG, STAGE_NAMES[stage] + ": " + (end - start) + " ms, heap in use "
+                + getHeapInUseKb() + " KB");
+        return end;
+    }
+
+    /**
+     * Bitmap pixels live on the Java heap before API 26 and on the native heap after, so both
+     * are counted to track peak usage while loading.
+     */
+    private static long getHeapInUseKb() {
+        Runtime runtime = Runtime.getRuntime();
+        long javaBytes = runtime.totalMemory() - runtime.freeMemory();
+        return (javaBytes + Debug.getNativeHeapAllocatedSize()) / 1024;
+    }
+}
@@ -0,0 +1,210 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.util.Log;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Process-wide store of bitmaps decoded at surface size, their derived variants and typefaces,
+ * shared by every live engine. Each bitmap is reference counted on its own: the getters take a
+ * reference that the caller gives back through {@link #releaseBitmap(Bitmap)}, and a variant is
+ * recycled as soon as nobody uses it, so sizes and styles an engine moved away from do not stay
+ * resident. Callers must not recycle bitmaps themselves. Derived bitmaps are also kept in a
+ * {@link DiskBitmapCache}, so getting a variant back later, or in a new process, skips decoding,
+ * scaling and desaturating it. The registry lock only guards the bookkeeping; decoding,
+ * processing and disk access run outside it, so releasing a bitmap never waits for a load.
+ */
+class AssetRegistry {
+
+    private static final String TAG = "AssetRegistry";
+
+    private static final String DISK_CACHE_DIR = "bitmaps";
+    private static final long DISK_CACHE_MAX_BYTES = 8 * 1024 * 1024;
+
+    private static final String[] AMBIENT_VARIANTS = {"gray", "lowbit", "burnin"};
+
+    private interface Loader {
+        Bitmap load();
+    }
+
+    /* A bitmap and its references. The count is guarded by the registry lock. */
+    private static class Variant {
+        private final CountDownLatch mLoaded = new CountDownLatch(1);
+        volatile Bitmap bitmap;
+        int refCount;
+
+        /* Passes the result of the load on to waiting callers; null if it failed. */
+        void setLoaded(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            mLoaded.countDown();
+        }
+
+        Bitmap await(String key) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mLoaded.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (bitmap == null) {
+                throw new IllegalStateException("cannot load " + key);
+            }
+            return bitmap;
+        }
+    }
+
+    private final String mDiskCacheDir;
+    private final long mDiskCacheMaxBytes;
+    private final Map<String, Variant> mVariants = new HashMap<>();
+    /* Typefaces cannot be freed, so they are kept for the life of the process. */
+    private final Map<String, Typeface> mTypefaces = new HashMap<>();
+    private DiskBitmapCache mDiskCache;
+
+    AssetRegistry() {
+        this(DISK_CACHE_DIR, DISK_CACHE_MAX_BYTES);
+    }
+
+    /**
+     * Creates a registry whose disk cache lives in {@code diskCacheDir} under the app's cache
+     * directory. Registries must not share a directory.
+     */
+    AssetRegistry(String diskCacheDir, long diskCacheMaxBytes) {
+        mDiskCacheDir = diskCacheDir;
+        mDiskCacheMaxBytes = diskCacheMaxBytes;
+    }
+
+    synchronized Typeface getTypeface(Context context, String path) {
+        Typeface typeface = mTypefaces.get(path);
+        if (typeface == null) {
+            typeface = Typeface.createFromAsset(context.getAssets(), path);
+            mTypefaces.put(path, typeface);
+        }
+        return typeface;
+    }
+
+    /**
+     * Returns the resource decoded at exactly {@code width} x {@code height}, with a reference
+     * taken.
+     */
+    Bitmap getScaledBitmap(final Context context, final int resId, final int width,
+                           final int height) {
+        return acquire(context, variantKey(resId, "scaled", width, height), new Loader() {
+            @Override
+            public Bitmap load() {
+                return BitmapDecoder.decodeToSize(context.getResources(), resId, width, height,
+                        Bitmap.Config.ARGB_8888);
+            }
+        });
+    }
+
+    /**
+     * Returns {@link #getScaledBitmap} converted to one of the {@link PixelProcessor} styles,
+     * with a reference taken.
+     */
+    Bitmap getAmbientBitmap(final Context context, final int resId, final int width,
+                            final int height, final int style) {
+        String key = variantKey(resId, AMBIENT_VARIANTS[style], width, height);
+        return acquire(context, key, new Loader() {
+            @Override
+            public Bitmap load() {
+                Bitmap scaled = getScaledBitmap(context, resId, width, height);
+                try {
+                    return PixelProcessor.process(scaled, style);
+                } finally {
+                    releaseBitmap(scaled);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gives back a reference taken by one of the getters. Null is ignored, and so is a bitmap
+     * the registry does not know, which is only logged.
+     */
+    synchronized void releaseBitmap(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        Iterator<Variant> variants = mVariants.values().iterator();
+        while (variants.hasNext()) {
+            Variant variant = variants.next();
+            if (variant.bitmap == bitmap) {
+                if (--variant.refCount == 0) {
+                    variants.remove();
+                    bitmap.recycle();
+                }
+                return;
+            }
+        }
+        Log.w(TAG, "released a bitmap that does not belong to the registry");
+    }
+
+    /**
+     * Takes a reference to the variant under {@code key}, loading it from disk or through
+     * {@code loader} if nobody holds it. The lock is only held for the bookkeeping: the first
+     * caller loads the variant, and callers asking for it meanwhile wait for that load instead
+     * of starting their own.
+     */
+    private Bitmap acquire(Context context, String key, Loader loader) {
+        Variant variant;
+        boolean load;
+        DiskBitmapCache diskCache;
+        synchronized (this) {
+            variant = mVariants.get(key);
+            load = variant == null;
+            if (load) {
+                variant = new Variant();
+                mVariants.put(key, variant);
+            }
+            variant.refCount++;
+            diskCache = getDiskCache(context);
+        }
+        if (!load) {
+            return variant.await(key);
+        }
+
+        Bitmap bitmap = null;
+        try {
+            bitmap = diskCache.get(key);
+            if (bitmap == null) {
+                bitmap = loader.load();
+                diskCache.put(key, bitmap);
+            }
+        } finally {
+            if (bitmap == null) {
+                synchronized (this) {
+                    mVariants.remove(key);
+                }
+            }
+            variant.setLoaded(bitmap);
+        }
+        return bitmap;
+    }
+
+    /* Created on first use, since reading the package version is not free. */
+    private DiskBitmapCache getDiskCache(Context context) {
+        if (mDiskCache == null) {
+            Context appContext = context.getApplicationContext();
+            mDiskCache = new DiskBitmapCache(new File(appContext.getCacheDir(), mDiskCacheDir),
+                    mDiskCacheMaxBytes, AssetVersion.get(appContext));
+        }
+        return mDiskCache;
+    }
+
+    private static String variantKey(int resId, String variant, int width, int height) {
+        return resId + "/" + variant + "/" + width + "x" + height;
+    }
+}
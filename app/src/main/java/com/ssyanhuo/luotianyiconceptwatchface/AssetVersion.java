@@ -0,0 +1,32 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+
+import androidx.core.content.pm.PackageInfoCompat;
+
+/**
+ * Identifies the build the bundled resources come from, for caches that outlive the process.
+ */
+final class AssetVersion {
+
+    private AssetVersion() {
+    }
+
+    /**
+     * Returns a string that changes whenever the APK, and so any of its resources, can have
+     * changed: the version code alone stays the same across development installs.
+     */
+    static String get(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0);
+            return PackageInfoCompat.getLongVersionCode(info) + "/" + info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            /* Our own package is always installed; never reuse an entry if it somehow isn't. */
+            return "unknown/" + SystemClock.elapsedRealtime();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.BlurMaskFilter;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * The drop shadow of a rotated shape, blurred once into a bitmap. On the software canvas a paint
+ * with {@link Paint#setShadowLayer} runs a blur for every primitive it draws; drawing the shape
+ * without one on top of this bitmap gives the same pixels for the cost of a blit. The shadow is
+ * rendered with a {@link BlurMaskFilter} of the same radius, which the framework converts to the
+ * same blur, from the shape rotated exactly as it is drawn. It is blitted unfiltered at a whole
+ * pixel offset, so every pixel gets the coverage the shadow layer would have given it. Only the
+ * last angle is kept: a new one is baked when the shape turns, and frames composed again at the
+ * same angle skip the blur.
+ */
+class BakedShadow {
+
+    private static final float NO_ANGLE = Float.NaN;
+
+    private final Path mShape;
+    private final Paint mShapePaint;
+    private final float mRadius;
+    private final BitmapPool mPool;
+    private final BlurMaskFilter mBlur;
+    private final Paint mShadowPaint = new Paint();
+    private final Matrix mRotation = new Matrix();
+    private final RectF mShapeBounds = new RectF();
+    private final Rect mBounds = new Rect();
+    /* Pointed at the shadow only while baking it. */
+    private final Canvas mCanvas = new Canvas();
+    private int mColor = Color.BLACK;
+    private float mDegrees = NO_ANGLE;
+    private Bitmap mShadow;
+
+    /**
+     * Creates the shadow of {@code shape} as drawn with {@code shapePaint}. Both are read when the
+     * shadow is baked, so call {@link #invalidate()} after changing them.
+     */
+    BakedShadow(Path shape, Paint shapePaint, float radius, BitmapPool pool) {
+        mShape = shape;
+        mShapePaint = shapePaint;
+        mRadius = radius;
+        mPool = pool;
+        mBlur = new BlurMaskFilter(radius, BlurMaskFilter.Blur.NORMAL);
+    }
+
+    void setColor(int color) {
+        if (color != mColor) {
+            mColor = color;
+            invalidate();
+        }
+    }
+
+    void invalidate() {
+        if (mShadow != null) {
+            mPool.release(mShadow);
+            mShadow = null;
+        }
+        mDegrees = NO_ANGLE;
+    }
+
+    /**
+     * Draws the shadow the shape casts when rotated clockwise by {@code degrees} around
+     * ({@code px}, {@code py}) on the unrotated {@code canvas}.
+     */
+    void draw(Canvas canvas, float degrees, float px, float py) {
+        if (mShadow == null || degrees != mDegrees) {
+            bake(degrees, px, py);
+        }
+        canvas.drawBitmap(mShadow, mBounds.left, mBounds.top, null);
+    }
+
+    private void bake(float degrees, float px, float py) {
+        if (mShadow != null) {
+            mPool.release(mShadow);
+        }
+        /* A blur fades out within about twice its radius, plus a pixel of anti-aliasing. */
+        float extent = mShapePaint.getStrokeWidth() / 2 + 2 * mRadius + 1;
+        mShape.computeBounds(mShapeBounds, true);
+        mRotation.setRotate(degrees, px, py);
+        mRotation.mapRect(mShapeBounds);
+        mShapeBounds.inset(-extent, -extent);
+        mShapeBounds.roundOut(mBounds);
+
+        mShadowPaint.set(mShapePaint);
+        mShadowPaint.clearShadowLayer();
+        mShadowPaint.setColor(mColor);
+        /* Like a shadow layer, an opaque shadow color takes the alpha of the paint. */
+        if (Color.alpha(mColor) == 255) {
+            mShadowPaint.setAlpha(mShapePaint.getAlpha());
+        }
+        mShadowPaint.setMaskFilter(mBlur);
+
+        mShadow = mPool.acquire(mBounds.width(), mBounds.height(), Bitmap.Config.ARGB_8888);
+        mCanvas.setBitmap(mShadow);
+        mCanvas.save();
+        /* Only moved by whole pixels from how the shape is drawn, so it is rasterized the same. */
+        mCanvas.translate(-mBounds.left, -mBounds.top);
+        mCanvas.rotate(degrees, px, py);
+        mCanvas.drawPath(mShape, mShadowPaint);
+        mCanvas.restore();
+        mCanvas.setBitmap(null);
+        mDegrees = degrees;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Decodes bitmap resources straight at the size they are drawn at, so the full resolution image
+ * never has to be held in memory next to a scaled copy.
+ */
+final class BitmapDecoder {
+
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Reads the pixel size of a resource without decoding it. The size is returned in
+     * {@link BitmapFactory.Options#outWidth} and {@link BitmapFactory.Options#outHeight}.
+     */
+    static BitmapFactory.Options decodeBounds(Resources resources, int resId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resId, options);
+        return options;
+    }
+
+    /**
+     * Decodes a resource at exactly {@code width} x {@code height}. The decoder subsamples by
+     * the largest power of two that stays above the target and then scales the rest of the way
+     * through the density fields. {@link Bitmap.Config#RGB_565} halves the size of opaque layers.
+     * The result has no density, so canvases draw it pixel for pixel.
+     */
+    static Bitmap decodeToSize(Resources resources, int resId, int width, int height,
+                               Bitmap.Config config) {
+        BitmapFactory.Options bounds = decodeBounds(resources, resId);
+
+        int sampleSize = 1;
+        while (bounds.outWidth / (sampleSize * 2) >= width
+                && bounds.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+        options.inScaled = true;
+        options.inDensity = bounds.outWidth / sampleSize;
+        options.inTargetDensity = width;
+        Bitmap bitmap = BitmapFactory.decodeResource(resources, resId, options);
+
+        /* Density scaling rounds, so fix up the odd pixel in height if needed. */
+        if (bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            Bitmap scaled = Bitmap.createScaledBitmap(bitmap, width, height, true);
+            bitmap.recycle();
+            bitmap = scaled;
+        }
+        /* The density fields were only borrowed for scaling; left set, every draw would rescale. */
+        bitmap.setDensity(Bitmap.DENSITY_NONE);
+        return bitmap;
+    }
+}
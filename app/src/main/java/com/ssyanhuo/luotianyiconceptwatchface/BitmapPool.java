@@ -0,0 +1,117 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates the rebuildable bitmaps of one renderer and keeps count of their size. Released
+ * bitmaps are pooled up to a byte budget and handed out again through
+ * {@link Bitmap#reconfigure}, like {@code inBitmap} does for decoding, so repainting a dropped
+ * layer does not need a fresh allocation.
+ * <p>
+ * The pool is not synchronized: it belongs to the thread that composes the renderer's frames,
+ * which is the render thread in threaded mode, the main thread otherwise and the worker thread
+ * for previews. Acquiring, releasing, trimming and dumping all happen there. The only thing
+ * another thread touches is the composed frame, which {@link FrameCache#draw} blits under the
+ * frame cache's lock. That never calls into the pool, and frames are only given back to the pool
+ * on the composing thread.
+ */
+class BitmapPool {
+
+    private final long mMaxPooledBytes;
+    private final List<Bitmap> mPool = new ArrayList<>();
+    private long mBytesInUse;
+    private long mPooledBytes;
+    private long mPeakBytes;
+    private int mAllocations;
+    private int mReuses;
+
+    BitmapPool(long maxPooledBytes) {
+        mMaxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Returns a transparent mutable bitmap, reusing a pooled one if any is large enough.
+     */
+    Bitmap acquire(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = takeFromPool(width, height, config);
+        if (bitmap != null) {
+            mReuses++;
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            mAllocations++;
+            bitmap = Bitmap.createBitmap(width, height, config);
+        }
+        mBytesInUse += bitmap.getAllocationByteCount();
+        mPeakBytes = Math.max(mPeakBytes, mBytesInUse + mPooledBytes);
+        return bitmap;
+    }
+
+    /**
+     * Takes back a bitmap from {@link #acquire}. It is pooled if it fits in the budget and
+     * recycled otherwise; either way the caller must not use it any more.
+     */
+    void release(Bitmap bitmap) {
+        int bytes = bitmap.getAllocationByteCount();
+        mBytesInUse -= bytes;
+        if (mPooledBytes + bytes <= mMaxPooledBytes) {
+            mPool.add(bitmap);
+            mPooledBytes += bytes;
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Recycles every pooled bitmap.
+     */
+    void clear() {
+        for (Bitmap bitmap : mPool) {
+            bitmap.recycle();
+        }
+        mPool.clear();
+        mPooledBytes = 0;
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Bitmaps: in use=" + mBytesInUse / 1024 + "KB pooled="
+                + mPooledBytes / 1024 + "KB (" + mPool.size() + ") peak=" + mPeakBytes / 1024
+                + "KB allocations=" + mAllocations + " reuses=" + mReuses);
+    }
+
+    /* Best fit, so small layers do not tie up full-screen buffers. */
+    private Bitmap takeFromPool(int width, int height, Bitmap.Config config) {
+        int needed = width * height * getBytesPerPixel(config);
+        int best = -1;
+        for (int i = 0; i < mPool.size(); i++) {
+            int size = mPool.get(i).getAllocationByteCount();
+            if (size >= needed
+                    && (best < 0 || size < mPool.get(best).getAllocationByteCount())) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        Bitmap bitmap = mPool.remove(best);
+        mPooledBytes -= bitmap.getAllocationByteCount();
+        bitmap.reconfigure(width, height, config);
+        return bitmap;
+    }
+
+    private static int getBytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+}
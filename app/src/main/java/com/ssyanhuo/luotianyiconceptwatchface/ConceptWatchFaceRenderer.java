@@ -0,0 +1,676 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import java.io.PrintWriter;
+
+/**
+ * Renderer for the Luo Tianyi concept face: the rotating hour disc under the background image,
+ * the boxed hour numeral, ticks, the minute hand and the logo. Ambient mode is drawn gray, or
+ * through {@link AmbientRenderer} on low-bit and burn-in protected screens.
+ */
+class ConceptWatchFaceRenderer implements WatchFaceRenderer,
+        DialLayerCache.Painter, AmbientRenderer.Painter, GlyphAtlas.Painter,
+        HandSpriteCache.Painter {
+
+    private static final float HOUR_STROKE_WIDTH = 5f;
+    private static final float MINUTE_STROKE_WIDTH = 3f;
+    private static final float SECOND_TICK_STROKE_WIDTH = 2f;
+
+    private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 6f;
+
+    /* Hour numeral position below the center, and the circle drawn around it. */
+    private static final int HOUR_NUMBER_BASELINE_OFFSET = 96;
+    private static final int HOUR_NUMBER_CIRCLE_OFFSET = 82;
+    private static final int HOUR_NUMBER_CIRCLE_RADIUS = 24;
+    /* Room around text for fake bold and anti-aliasing when it is cached as a glyph. */
+    private static final int GLYPH_PADDING = 4;
+    /* Numerals 1-12, so drawing one does not allocate a String per frame. */
+    private static final String[] HOUR_NUMBER_TEXT = new String[12];
+
+    static {
+        for (int i = 0; i < HOUR_NUMBER_TEXT.length; i++) {
+            HOUR_NUMBER_TEXT[i] = String.valueOf(i + 1);
+        }
+    }
+
+    static final int SHADOW_RADIUS = 6;
+
+    /* Released layers kept around for rebuilding them, about two full-screen layers. */
+    private static final int BITMAP_POOL_BYTES = 2 * 1024 * 1024;
+
+    private static final int TIANYI_BLUE = Color.rgb(102,204,255);
+    private static final String LOGO_TEXT = "∞";
+    /* Logo baseline above the center. */
+    private static final int LOGO_BASELINE_OFFSET = 120;
+
+    private float mCenterX;
+    private float mCenterY;
+    private float sMinuteHandLength;
+    private float sHourHandLength;
+    private int mWatchHandColor;
+    private int mWatchHandHighlightColor;
+    private int mWatchHandShadowColor;
+    private Paint mHourPaint;
+    private Paint mMinutePaint;
+    private Paint mHourTickPaint;
+    private Paint mMinuteTickPaint;
+    private Paint mBackgroundPaint;
+    private Paint mCirclePaint;
+    private Paint mTianyiPaint;
+    private Paint mHourNumberPaint;
+    private Bitmap mBackgroundBitmap;
+    private Bitmap mAmbientBackgroundBitmap;
+    private int mAmbientBackgroundStyle;
+    private Bitmap mHourHandBitmap;
+    /* Hour paint with bitmap filtering, for rotating the hand bitmap into sprites. */
+    private final Paint mHourSpritePaint = new Paint();
+    private final Matrix mHourSpriteMatrix = new Matrix();
+    /* Assets being drawn, owned by the renderer until replaced or released. */
+    private AssetLoader.Assets mAssets;
+    private final Path mMinuteHandPath = new Path();
+    private final float[] mHourTickLines = new float[TickGeometry.HOUR_TICK_COUNT * 4];
+    private final float[] mMinuteTickLines = new float[TickGeometry.MINUTE_TICK_COUNT * 4];
+    private final BitmapPool mBitmapPool = new BitmapPool(BITMAP_POOL_BYTES);
+    /* The hour hand is the first thing drawn on the cleared frame. */
+    private final HandSpriteCache mHourSpriteCache =
+            new HandSpriteCache(this, mBitmapPool, Color.BLACK);
+    private final BakedShadow mMinuteHandShadow;
+    private final DialLayerCache mDialLayerCache = new DialLayerCache(this, mBitmapPool);
+    private final FrameCache mFrameCache = new FrameCache(mBitmapPool);
+    private final GlyphAtlas mGlyphAtlas = new GlyphAtlas(this, mBitmapPool);
+    private final AmbientRenderer mAmbientRenderer;
+    private final FrameStats mStats;
+    /* Mode the paints are currently styled for. */
+    private ModeState mMode = ModeState.INTERACTIVE;
+    /* Time of the frame being rendered. */
+    private WatchTime mTime;
+    private boolean mLastFrameDrawn;
+    /* Whether a cached layer or glyph was repainted during the current frame. */
+    private boolean mLayersRepainted;
+
+    ConceptWatchFaceRenderer(FrameStats stats) {
+        mStats = stats;
+        initializeBackground();
+        initializeWatchFace();
+        mMinuteHandShadow = new BakedShadow(mMinuteHandPath, mMinutePaint, SHADOW_RADIUS,
+                mBitmapPool);
+        mAmbientRenderer = new AmbientRenderer(this, mGlyphAtlas, mBitmapPool, mMinutePaint,
+                mCirclePaint, CENTER_GAP_AND_CIRCLE_RADIUS);
+    }
+
+    /**
+     * Returns the interactive minute hand paint, without its shadow, which is baked separately.
+     */
+    static Paint newMinuteHandPaint() {
+        Paint paint = new Paint();
+        paint.setColor(TIANYI_BLUE);
+        paint.setStrokeWidth(MINUTE_STROKE_WIDTH / 4);
+        paint.setAntiAlias(true);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStyle(Paint.Style.FILL_AND_STROKE);
+        return paint;
+    }
+
+    private void initializeBackground() {
+        mBackgroundPaint = new Paint();
+        mBackgroundPaint.setColor(Color.BLACK);
+    }
+
+    private void initializeWatchFace() {
+        /* Set defaults for colors */
+        mWatchHandColor = Color.WHITE;
+        mWatchHandHighlightColor = Color.RED;
+        mWatchHandShadowColor = Color.BLACK;
+
+        mHourPaint = new Paint();
+        mHourPaint.setColor(mWatchHandColor);
+        mHourPaint.setStrokeWidth(HOUR_STROKE_WIDTH);
+        mHourPaint.setAntiAlias(true);
+        mHourPaint.setStrokeCap(Paint.Cap.ROUND);
+        mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+
+        mMinutePaint = newMinuteHandPaint();
+
+        mHourTickPaint = new Paint();
+        mHourTickPaint.setColor(mWatchHandColor);
+        mHourTickPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+        mHourTickPaint.setAntiAlias(true);
+        mHourTickPaint.setStrokeCap(Paint.Cap.ROUND);
+        mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+        mHourTickPaint.setStyle(Paint.Style.STROKE);
+
+        mMinuteTickPaint = new Paint();
+        mMinuteTickPaint.setColor(mWatchHandColor);
+        mMinuteTickPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+        mMinuteTickPaint.setAntiAlias(true);
+        mMinuteTickPaint.setStrokeCap(Paint.Cap.ROUND);
+        mMinuteTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+        mMinuteTickPaint.setStyle(Paint.Style.STROKE);
+
+        mCirclePaint = new Paint();
+        mCirclePaint.setColor(TIANYI_BLUE);
+        mCirclePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+        mCirclePaint.setAntiAlias(true);
+        mCirclePaint.setStyle(Paint.Style.FILL);
+
+        mTianyiPaint = new Paint();
+        mTianyiPaint.setColor(TIANYI_BLUE);
+        mTianyiPaint.setTextAlign(Paint.Align.CENTER);
+        mTianyiPaint.setFakeBoldText(true);
+        mTianyiPaint.setTextSize(56);
+        mTianyiPaint.setAntiAlias(true);
+
+        mHourNumberPaint = new Paint();
+        mHourNumberPaint.setColor(Color.WHITE);
+        mHourNumberPaint.setTextAlign(Paint.Align.CENTER);
+        mHourNumberPaint.setFakeBoldText(true);
+        mHourNumberPaint.setTextSize(36);
+        mHourNumberPaint.setAntiAlias(true);
+        mHourNumberPaint.setStyle(Paint.Style.STROKE);
+        mHourNumberPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+
+        updateWatchHandStyle();
+    }
+
+    /**
+     * Takes over freshly loaded assets. Until the first ones arrive, frames are drawn from the
+     * placeholder in {@link #drawPlaceholder(Canvas)}. The previous assets are released, so a
+     * size or ambient style the face moved away from stops taking memory.
+     */
+    void setAssets(AssetLoader.Assets assets) {
+        /* Drop the layers first, they may have been drawn from the old bitmaps. */
+        invalidateLayers();
+        if (mAssets != null) {
+            mAssets.release();
+        }
+        mAssets = assets;
+        mBackgroundBitmap = assets.background;
+        mAmbientBackgroundBitmap = assets.ambientBackground;
+        mAmbientBackgroundStyle = assets.ambientStyle;
+        mHourHandBitmap = assets.hourHand;
+        mHourSpriteCache.setSize(assets.width, assets.height);
+        mTianyiPaint.setTypeface(assets.typeface);
+        mHourNumberPaint.setTypeface(assets.typeface);
+    }
+
+    /**
+     * Applies colors extracted from the background image.
+     */
+    void setWatchHandColors(int color, int highlightColor, int shadowColor) {
+        mWatchHandColor = color;
+        mWatchHandHighlightColor = highlightColor;
+        mWatchHandShadowColor = shadowColor;
+        mMinuteHandShadow.setColor(shadowColor);
+        updateWatchHandStyle();
+        invalidateLayers();
+    }
+
+    @Override
+    public void setSurfaceSize(int width, int height) {
+        /*
+         * Find the coordinates of the center point on the screen, and ignore the window
+         * insets, so that, on round watches with a "chin", the watch face is centered on the
+         * entire screen, not just the usable portion.
+         */
+        mCenterX = width / 2f;
+        mCenterY = height / 2f;
+
+        /*
+         * Calculate lengths of different hands based on watch screen size.
+         */
+        sMinuteHandLength = (float) (mCenterX * 0.75);
+        sHourHandLength = (float) (mCenterX * 0.5);
+
+        buildMinuteHandPath(mMinuteHandPath, mCenterX, mCenterY, sMinuteHandLength);
+        TickGeometry.compute(mCenterX, mCenterY, mHourTickLines, mMinuteTickLines);
+
+        mAmbientRenderer.setGeometry(width, height, mMinuteHandPath);
+
+        mDialLayerCache.setSize(width, height);
+        mFrameCache.setSize(width, height);
+        invalidateLayers();
+    }
+
+    /**
+     * Has the frames composed in a back buffer, so {@link #drawComposedFrame(Canvas)} can be
+     * called on another thread than the rest. Call before the first frame.
+     */
+    void setDoubleBuffered(boolean doubleBuffered) {
+        mFrameCache.setDoubleBuffered(doubleBuffered);
+    }
+
+    @Override
+    public void render(Canvas canvas, WatchTime time, ModeState mode) {
+        long frameStart = mStats.startStage();
+        composeFrame(time, mode);
+        long start = mStats.startStage();
+        drawComposedFrame(canvas);
+        mStats.endStage(FrameStats.STAGE_BLIT, start);
+        mStats.endStage(FrameStats.STAGE_FRAME, frameStart);
+    }
+
+    /**
+     * Composes the frame for {@code time} in {@code mode} into the frame cache, unless the
+     * cached frame already shows it.
+     */
+    void composeFrame(WatchTime time, ModeState mode) {
+        mStats.count(FrameStats.COUNTER_FRAMES);
+        mTime = time;
+        mLastFrameDrawn = false;
+        mLayersRepainted = false;
+        applyMode(mode);
+
+        /* Only render when something visible changed since the last frame. */
+        Canvas frameCanvas = mFrameCache.beginFrame(computeFrameKey());
+        if (frameCanvas == null) {
+            mStats.count(FrameStats.COUNTER_FRAMES_REUSED);
+            return;
+        }
+        mLastFrameDrawn = mAssets != null;
+        if (mAssets == null) {
+            drawPlaceholder(frameCanvas);
+        } else if (mMode.isReducedAmbient()) {
+            long start = mStats.startStage();
+            mAmbientRenderer.draw(frameCanvas, mTime.getDisplayHour(), mTime.minute,
+                    mMode.burnInProtection);
+            mStats.endStage(FrameStats.STAGE_AMBIENT, start);
+        } else {
+            long start = mStats.startStage();
+            drawHourWatchHand(frameCanvas);
+            mStats.endStage(FrameStats.STAGE_HOUR_HAND, start);
+
+            start = mStats.startStage();
+            mDialLayerCache.draw(frameCanvas, getDialMode(), null);
+            mStats.endStage(FrameStats.STAGE_DIAL, start);
+
+            start = mStats.startStage();
+            drawHourNumber(frameCanvas);
+            mStats.endStage(FrameStats.STAGE_HOUR_NUMBER, start);
+
+            start = mStats.startStage();
+            drawWatchFace(frameCanvas);
+            mStats.endStage(FrameStats.STAGE_MINUTE_HAND, start);
+
+            start = mStats.startStage();
+            drawTianyiLogo(frameCanvas);
+            mStats.endStage(FrameStats.STAGE_LOGO, start);
+        }
+        mFrameCache.endFrame();
+    }
+
+    /**
+     * Blits the last composed frame, or clears the canvas if there is none yet. When double
+     * buffered, this is the one method that may be called on another thread.
+     */
+    void drawComposedFrame(Canvas canvas) {
+        if (!mFrameCache.draw(canvas)) {
+            canvas.drawColor(Color.BLACK);
+        }
+    }
+
+    /**
+     * Returns whether the last call to {@link #composeFrame} drew a new frame from cached layers
+     * only, as opposed to the loading placeholder, the cached frame or a frame that had to
+     * repaint a layer or glyph first. New hour hand sprites do not count, since one is painted
+     * every minute.
+     */
+    boolean wasLastFrameSteady() {
+        return mLastFrameDrawn && !mLayersRepainted;
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Mode: ambient=" + mMode.ambient + " lowBit=" + mMode.lowBitAmbient
+                + " burnIn=" + mMode.burnInProtection + " mute=" + mMode.muteMode);
+        writer.print(prefix);
+        writer.println("Frame cache: hits=" + mFrameCache.getHitCount()
+                + " misses=" + mFrameCache.getMissCount());
+        writer.print(prefix);
+        writer.println("Hour sprites: hits=" + mHourSpriteCache.getHitCount()
+                + " misses=" + mHourSpriteCache.getMissCount());
+        mBitmapPool.dump(prefix, writer);
+        writer.print(prefix);
+        writer.println("Shared assets: " + getAssetBytes() / 1024 + "KB");
+        if (mAssets != null) {
+            mAssets.dump(prefix, writer);
+        }
+    }
+
+    /**
+     * Frees memory for a {@link ComponentCallbacks2} trim level. Cached layers are dropped at
+     * any level, since they are repainted on demand. Their buffers stay pooled for that unless
+     * memory is getting low or the process has been moved to the background. A composed frame
+     * that another thread may still be showing is kept.
+     */
+    void trimMemory(int level) {
+        mDialLayerCache.release();
+        mFrameCache.trim();
+        mHourSpriteCache.invalidate();
+        mAmbientRenderer.invalidate();
+        mGlyphAtlas.invalidate();
+        mMinuteHandShadow.invalidate();
+        if (level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                && level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mBitmapPool.clear();
+        }
+    }
+
+    @Override
+    public void release() {
+        mDialLayerCache.release();
+        mFrameCache.release();
+        mHourSpriteCache.release();
+        mAmbientRenderer.release();
+        mGlyphAtlas.release();
+        mMinuteHandShadow.invalidate();
+        mBitmapPool.clear();
+        if (mAssets != null) {
+            mAssets.release();
+            mAssets = null;
+            mBackgroundBitmap = null;
+            mAmbientBackgroundBitmap = null;
+            mHourHandBitmap = null;
+        }
+    }
+
+    /* Asset bitmaps are shared through the AssetRegistry, other engines may hold them too. */
+    private long getAssetBytes() {
+        long bytes = 0;
+        for (Bitmap bitmap : new Bitmap[] {
+                mBackgroundBitmap, mAmbientBackgroundBitmap, mHourHandBitmap}) {
+            if (bitmap != null) {
+                bytes += bitmap.getAllocationByteCount();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Restyles the paints when the mode changes. Only changes that are not covered by the
+     * per-mode layers drop the caches.
+     */
+    private void applyMode(ModeState mode) {
+        if (mode.equals(mMode)) {
+            return;
+        }
+        boolean sameStyle = mode.hasSameStyle(mMode);
+        mMode = mode;
+        updateWatchHandStyle();
+        if (!sameStyle) {
+            invalidateLayers();
+        }
+    }
+
+    private void updateWatchHandStyle() {
+        if (mMode.ambient) {
+            mHourPaint.setColor(Color.WHITE);
+            mMinutePaint.setColor(TIANYI_BLUE);
+            mHourTickPaint.setColor(Color.WHITE);
+
+            mHourPaint.setAntiAlias(false);
+            mHourTickPaint.setAntiAlias(false);
+            mHourNumberPaint.setAntiAlias(false);
+
+            /* Low-bit screens can only show fully on or off pixels. */
+            mMinutePaint.setAntiAlias(!mMode.lowBitAmbient);
+            mCirclePaint.setAntiAlias(!mMode.lowBitAmbient);
+            mTianyiPaint.setAntiAlias(!mMode.lowBitAmbient);
+
+            mHourPaint.clearShadowLayer();
+            mHourTickPaint.clearShadowLayer();
+            mMinuteTickPaint.clearShadowLayer();
+
+            mTianyiPaint.setAlpha(255);
+            mMinuteTickPaint.setAlpha(0);
+            mHourNumberPaint.setAlpha(255);
+        } else {
+            mHourPaint.setColor(mWatchHandColor);
+            mMinutePaint.setColor(TIANYI_BLUE);
+            mHourTickPaint.setColor(mWatchHandColor);
+
+            boolean antiAlias = mMode.quality != QualityGovernor.TIER_FLAT;
+            mHourPaint.setAntiAlias(antiAlias);
+            mHourTickPaint.setAntiAlias(antiAlias);
+            mMinuteTickPaint.setAntiAlias(antiAlias);
+            mHourNumberPaint.setAntiAlias(antiAlias);
+            mMinutePaint.setAntiAlias(antiAlias);
+            mCirclePaint.setAntiAlias(antiAlias);
+            mTianyiPaint.setAntiAlias(antiAlias);
+
+            if (hasShadows()) {
+                mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+                mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+                mMinuteTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            } else {
+                mHourPaint.clearShadowLayer();
+                mHourTickPaint.clearShadowLayer();
+                mMinuteTickPaint.clearShadowLayer();
+            }
+
+            mTianyiPaint.setAlpha(0);
+            mMinuteTickPaint.setAlpha(255);
+            mHourNumberPaint.setAlpha(0);
+        }
+
+        /* Dim display in mute mode. */
+        mHourPaint.setAlpha(mMode.muteMode ? 100 : 255);
+        mMinutePaint.setAlpha(mMode.muteMode ? 100 : 255);
+    }
+
+    private boolean hasShadows() {
+        return !mMode.ambient && mMode.quality == QualityGovernor.TIER_FULL;
+    }
+
+    /**
+     * Packs the state {@link #render(Canvas, WatchTime, ModeState)} depends on into a single key.
+     * Style changes that are not part of the key go through {@link #invalidateLayers()}.
+     */
+    private long computeFrameKey() {
+        long key = mTime.hour;
+        key = (key << 6) | mTime.minute;
+        key = (key << ModeState.KEY_BITS) | mMode.packedKey();
+        return key;
+    }
+
+    /**
+     * Drops the cached dial layers and the last frame after a style change.
+     */
+    private void invalidateLayers() {
+        mDialLayerCache.invalidate();
+        mAmbientRenderer.invalidate();
+        mGlyphAtlas.invalidate();
+        mHourSpriteCache.invalidate();
+        mMinuteHandShadow.invalidate();
+        mFrameCache.invalidate();
+    }
+
+    /**
+     * Builds the minute hand pointing at 12 o'clock. It only depends on the surface size and
+     * is rotated through the canvas when drawn.
+     */
+    static void buildMinuteHandPath(Path path, float centerX, float centerY, float length) {
+        path.reset();
+        path.moveTo(centerX, centerY);
+        path.lineTo(centerX - 2, centerY);
+        path.lineTo(centerX - 2, (float)(centerY - length * 0.05));
+        path.lineTo(centerX - 4, (float)(centerY - length * 0.15));
+
+        path.lineTo(centerX - 1, centerX - length);
+        path.lineTo(centerX, centerX - length - 1);
+        path.lineTo(centerX + 1, centerX - length);
+
+        path.lineTo(centerX + 4, (float)(centerY - length * 0.15));
+        path.lineTo(centerX + 2, (float)(centerY - length * 0.05));
+        path.lineTo(centerX + 2, centerY);
+        path.close();
+    }
+
+    /**
+     * Cheap frame shown while the assets are still loading: a black dial with ticks and the
+     * minute hand.
+     */
+    private void drawPlaceholder(Canvas canvas) {
+        canvas.drawColor(Color.BLACK);
+        drawTicks(canvas);
+        drawWatchFace(canvas);
+    }
+
+    private int getDialMode() {
+        return mMode.ambient ? DialLayerCache.MODE_AMBIENT : DialLayerCache.MODE_INTERACTIVE;
+    }
+
+    /**
+     * Paints the parts of the face that do not change from frame to frame. Called by
+     * {@link #mDialLayerCache} whenever the layer for the current mode has to be rebuilt.
+     */
+    @Override
+    public void paintDialLayer(Canvas canvas) {
+        mStats.count(FrameStats.COUNTER_LAYER_REBUILDS);
+        mLayersRepainted = true;
+        drawBackground(canvas);
+        drawTicks(canvas);
+    }
+
+    /**
+     * Paints the static part of the low-bit / burn-in ambient face for
+     * {@link #mAmbientRenderer}. The hour hand is not part of it, since the dithered
+     * background is flattened onto black in that mode.
+     */
+    @Override
+    public void paintAmbientLayer(Canvas canvas) {
+        mStats.count(FrameStats.COUNTER_LAYER_REBUILDS);
+        mLayersRepainted = true;
+        canvas.drawColor(Color.BLACK);
+        /* Only the dithered backgrounds suit low-bit and burn-in screens. */
+        if (mAmbientBackgroundBitmap != null
+                && mAmbientBackgroundStyle != PixelProcessor.STYLE_GRAY) {
+            canvas.drawBitmap(mAmbientBackgroundBitmap, 0, 0, null);
+        }
+        drawTicks(canvas);
+        paintLogo(canvas);
+    }
+
+    @Override
+    public void getHourNumberBounds(Rect outBounds) {
+        int centerY = (int) mCenterX + HOUR_NUMBER_CIRCLE_OFFSET;
+        int extent = HOUR_NUMBER_CIRCLE_RADIUS + GLYPH_PADDING;
+        outBounds.set((int) mCenterX - extent, centerY - extent,
+                (int) mCenterX + extent, centerY + extent);
+    }
+
+    @Override
+    public void getLogoBounds(Rect outBounds) {
+        /* Text bounds are relative to a left aligned origin; the logo is centered. */
+        mTianyiPaint.getTextBounds(LOGO_TEXT, 0, LOGO_TEXT.length(), outBounds);
+        outBounds.offset((int) (mCenterX - mTianyiPaint.measureText(LOGO_TEXT) / 2),
+                (int) (mCenterY - LOGO_BASELINE_OFFSET));
+        outBounds.inset(-GLYPH_PADDING, -GLYPH_PADDING);
+    }
+
+    @Override
+    public void paintLogo(Canvas canvas) {
+        mLayersRepainted = true;
+        canvas.drawText(LOGO_TEXT, mCenterX, mCenterY - LOGO_BASELINE_OFFSET, mTianyiPaint);
+    }
+
+    @Override
+    public void paintHourNumber(Canvas canvas, int hour) {
+        mLayersRepainted = true;
+        canvas.drawText(HOUR_NUMBER_TEXT[hour - 1], mCenterX,
+                mCenterX + HOUR_NUMBER_BASELINE_OFFSET, mHourNumberPaint);
+        canvas.drawCircle(mCenterX, mCenterX + HOUR_NUMBER_CIRCLE_OFFSET,
+                HOUR_NUMBER_CIRCLE_RADIUS, mHourNumberPaint);
+    }
+
+    private void drawHourWatchHand(Canvas canvas){
+        final float hourHandOffset = mTime.minute / 2f;
+        final float hoursRotation = (mTime.hour * 30) + hourHandOffset;
+
+        /* The sprite is already rotated, shadowed and on black, so it replaces the frame. */
+        canvas.drawBitmap(mHourSpriteCache.getSprite(getDialMode(), hoursRotation), 0, 0, null);
+    }
+
+    /**
+     * Paints the hour hand, line and bitmap, with its shadow for {@link #mHourSpriteCache}. The
+     * shadow is only blurred here, once per angle, instead of on every frame.
+     */
+    @Override
+    public void paintHand(Canvas canvas, int variant, float degrees) {
+        canvas.save();
+
+        canvas.rotate(degrees, mCenterX, mCenterY);
+        canvas.drawLine(mCenterX,mCenterX,mCenterX-sHourHandLength,mCenterY-sHourHandLength,mHourPaint);
+
+        canvas.restore();
+
+        mHourSpritePaint.set(mHourPaint);
+        mHourSpritePaint.setFilterBitmap(true);
+        mHourSpriteMatrix.setRotate(degrees, mCenterX, mCenterY);
+        canvas.drawBitmap(mHourHandBitmap, mHourSpriteMatrix, mHourSpritePaint);
+    }
+
+    private void drawBackground(Canvas canvas) {
+
+        if (mMode.ambient) {
+            /* The dithered styles are only meant for the reduced ambient layer. */
+            if (mAmbientBackgroundStyle == PixelProcessor.STYLE_GRAY) {
+                canvas.drawBitmap(mAmbientBackgroundBitmap, 0, 0, mBackgroundPaint);
+            }
+        } else {
+            canvas.drawBitmap(mBackgroundBitmap, 0, 0, mBackgroundPaint);
+        }
+    }
+
+    private void drawHourNumber(Canvas canvas){
+        /* The numeral is only shown in ambient mode; its paint is transparent otherwise. */
+        if (mHourNumberPaint.getAlpha() == 0) {
+            return;
+        }
+        mGlyphAtlas.drawHourNumber(canvas, getDialMode(), mTime.getDisplayHour(), 0, 0);
+    }
+
+    private void drawTicks(Canvas canvas) {
+        canvas.drawLines(mHourTickLines, mHourTickPaint);
+        canvas.drawLines(mMinuteTickLines, mMinuteTickPaint);
+    }
+
+    private void drawWatchFace(Canvas canvas) {
+
+        /*
+         * These calculations reflect the rotation in degrees per unit of time, e.g.,
+         * 360 / 60 = 6 and 360 / 12 = 30.
+         */
+
+        final float minutesRotation = mTime.minute * 6f;
+
+        /*
+         * Save the canvas state before we can begin to rotate it.
+         */
+        /* The hand casts a shadow in interactive mode, baked once per angle instead of here. */
+        if (hasShadows()) {
+            mMinuteHandShadow.draw(canvas, minutesRotation, mCenterX, mCenterY);
+        }
+        canvas.save();
+        canvas.rotate(minutesRotation, mCenterX, mCenterY);
+        canvas.drawPath(mMinuteHandPath, mMinutePaint);
+        /* Restore the canvas' original orientation. */
+        canvas.restore();
+        canvas.drawCircle(mCenterX, mCenterY, CENTER_GAP_AND_CIRCLE_RADIUS, mCirclePaint);
+    }
+
+    private void drawTianyiLogo(Canvas canvas){
+        /* Like the numeral, the logo is only shown in ambient mode. */
+        if (mTianyiPaint.getAlpha() == 0) {
+            return;
+        }
+        mGlyphAtlas.drawLogo(canvas, getDialMode());
+    }
+}
@@ -1,12 +1,40 @@
 package com.ssyanhuo.luotianyiconceptwatchface;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.graphics.Bitmap;
+import android.graphics.Color;
 import android.os.Bundle;
 import android.support.wearable.activity.WearableActivity;
+import android.view.View;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-public class ConfigActivity extends WearableActivity {
+/**
+ * Shows a live preview of the face, rendered by a {@link PreviewRenderer} in the mode the
+ * activity is in. A cached preview is shown right away and replaced when the minute changes.
+ */
+public class ConfigActivity extends WearableActivity implements PreviewRenderer.Callback,
+        PaletteCache.Callback {
 
     private TextView mTextView;
+    private ImageView mPreviewView;
+    private PreviewRenderer mPreviewRenderer;
+    private PaletteCache mPaletteCache;
+    private ModeState mMode = ModeState.INTERACTIVE;
+    private int mHighlightColor;
+    private boolean mHighlightColorLoaded;
+    private final BroadcastReceiver mTimeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                mPreviewRenderer.onTimeZoneChanged();
+            }
+            updatePreview();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -14,8 +42,105 @@ public class ConfigActivity extends WearableActivity {
         setContentView(R.layout.activity_config);
 
         mTextView = findViewById(R.id.text);
+        mPreviewView = findViewById(R.id.preview);
+        mPreviewView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+                    updatePreview();
+                }
+            }
+        });
+
+        mPreviewRenderer = new PreviewRenderer(this);
+        mPaletteCache = new PaletteCache(this);
+        mPaletteCache.loadVibrantColor(R.drawable.bg, Color.RED, this);
 
         // Enables Always-on
         setAmbientEnabled();
     }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        IntentFilter filter = new IntentFilter(Intent.ACTION_TIME_TICK);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        filter.addAction(Intent.ACTION_TIME_CHANGED);
+        registerReceiver(mTimeReceiver, filter);
+        updatePreview();
+    }
+
+    @Override
+    protected void onPause() {
+        unregisterReceiver(mTimeReceiver);
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mPreviewRenderer.release();
+        mPaletteCache.release();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        PreviewRenderer.trimMemory(level);
+    }
+
+    @Override
+    public void onEnterAmbient(Bundle ambientDetails) {
+        super.onEnterAmbient(ambientDetails);
+        mMode = ModeState.INTERACTIVE
+                .withProperties(ambientDetails.getBoolean(EXTRA_LOWBIT_AMBIENT, false),
+                        ambientDetails.getBoolean(EXTRA_BURN_IN_PROTECTION, false))
+                .withAmbient(true);
+        mTextView.setVisibility(View.INVISIBLE);
+        updatePreview();
+    }
+
+    /* Time ticks are not delivered in ambient mode, this comes once a minute instead. */
+    @Override
+    public void onUpdateAmbient() {
+        super.onUpdateAmbient();
+        updatePreview();
+    }
+
+    @Override
+    public void onExitAmbient() {
+        super.onExitAmbient();
+        mMode = ModeState.INTERACTIVE;
+        mTextView.setVisibility(View.VISIBLE);
+        updatePreview();
+    }
+
+    @Override
+    public void onVibrantColorLoaded(int color) {
+        mHighlightColor = color;
+        mHighlightColorLoaded = true;
+        updatePreview();
+    }
+
+    @Override
+    public void onPreviewRendered(Bitmap preview) {
+        mPreviewView.setImageBitmap(preview);
+    }
+
+    /**
+     * Shows the cached preview for the current mode, if any, and asks for a fresh one. The face
+     * is laid out for a square surface, so the preview is rendered at the shorter side.
+     */
+    private void updatePreview() {
+        int size = Math.min(mPreviewView.getWidth(), mPreviewView.getHeight());
+        if (size <= 0 || !mHighlightColorLoaded) {
+            return;
+        }
+        Bitmap cached = PreviewRenderer.getCachedPreview(mMode, size, size, mHighlightColor);
+        if (cached != null) {
+            mPreviewView.setImageBitmap(cached);
+        }
+        mPreviewRenderer.render(mMode, size, size, mHighlightColor, this);
+    }
 }
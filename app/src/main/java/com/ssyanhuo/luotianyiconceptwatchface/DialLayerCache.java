@@ -0,0 +1,95 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * Off-screen cache of the static part of the dial (background and tick marks). One layer is kept
+ * per display mode and is only repainted after {@link #invalidate()} or a surface size change, so
+ * a frame costs a single bitmap blit instead of redrawing the whole dial. Low-bit and burn-in
+ * ambient mode is handled by {@link AmbientRenderer} instead.
+ */
+class DialLayerCache {
+
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_AMBIENT = 1;
+    private static final int MODE_COUNT = 2;
+
+    /**
+     * Paints the dial for the current mode onto a layer canvas.
+     */
+    interface Painter {
+        void paintDialLayer(Canvas canvas);
+    }
+
+    private final Painter mPainter;
+    private final BitmapPool mPool;
+    private final Bitmap[] mLayers = new Bitmap[MODE_COUNT];
+    private final boolean[] mValid = new boolean[MODE_COUNT];
+    private int mWidth;
+    private int mHeight;
+
+    DialLayerCache(Painter painter, BitmapPool pool) {
+        mPainter = painter;
+        mPool = pool;
+    }
+
+    /**
+     * Resizes the layers. Existing layers are dropped if the size differs.
+     */
+    void setSize(int width, int height) {
+        if (width == mWidth && height == mHeight) {
+            return;
+        }
+        release();
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Marks every layer as stale so it is repainted the next time it is drawn.
+     */
+    void invalidate() {
+        for (int i = 0; i < MODE_COUNT; i++) {
+            mValid[i] = false;
+        }
+    }
+
+    void draw(Canvas canvas, int mode, Paint paint) {
+        if (mWidth <= 0 || mHeight <= 0) {
+            mPainter.paintDialLayer(canvas);
+            return;
+        }
+        canvas.drawBitmap(getLayer(mode), 0, 0, paint);
+    }
+
+    /**
+     * Returns the layers to the pool. They are repainted when next drawn.
+     */
+    void release() {
+        for (int i = 0; i < MODE_COUNT; i++) {
+            if (mLayers[i] != null) {
+                mPool.release(mLayers[i]);
+                mLayers[i] = null;
+            }
+            mValid[i] = false;
+        }
+    }
+
+    private Bitmap getLayer(int mode) {
+        Bitmap layer = mLayers[mode];
+        if (layer == null) {
+            layer = mPool.acquire(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mLayers[mode] = layer;
+        } else if (mValid[mode]) {
+            return layer;
+        } else {
+            layer.eraseColor(Color.TRANSPARENT);
+        }
+        mPainter.paintDialLayer(new Canvas(layer));
+        mValid[mode] = true;
+        return layer;
+    }
+}
@@ -0,0 +1,200 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.Adler32;
+
+/**
+ * Stores ARGB_8888 bitmaps in a directory as raw pixels behind a small header, which loads much
+ * faster than decoding and rescaling a PNG. Entries written by another build, truncated or with a
+ * bad checksum are deleted and reported as misses. The least recently used files are evicted once
+ * the directory grows past its size limit.
+ */
+class DiskBitmapCache {
+
+    private static final String TAG = "DiskBitmapCache";
+
+    private static final int MAGIC = 0x4c54424d; // "LTBM"
+    private static final int FORMAT_VERSION = 1;
+    /* Magic, format version, asset version hash, width, height and checksum. */
+    private static final int HEADER_SIZE = 6 * 4;
+    private static final String SUFFIX = ".bitmap";
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final int mVersionHash;
+
+    /**
+     * Creates a cache in {@code directory}. Entries written with a different {@code version}
+     * are treated as stale.
+     */
+    DiskBitmapCache(File directory, long maxBytes, String version) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mVersionHash = version.hashCode();
+    }
+
+    /**
+     * Returns the bitmap stored under {@code key}, or null if there is no usable entry.
+     */
+    Bitmap get(String key) {
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            Bitmap bitmap = read(file);
+            if (bitmap != null) {
+                file.setLastModified(System.currentTimeMillis());
+                return bitmap;
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "unreadable entry " + file.getName(), e);
+        }
+        file.delete();
+        return null;
+    }
+
+    /**
+     * Stores {@code bitmap} under {@code key}. Failures are logged and otherwise ignored, since
+     * the bitmap can always be recreated.
+     */
+    void put(String key, Bitmap bitmap) {
+        if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        File file = getFile(key);
+        File temp = new File(mDirectory, file.getName() + ".tmp");
+        try {
+            write(temp, bitmap);
+            if (!temp.renameTo(file)) {
+                throw new IOException("cannot rename " + temp.getName());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "cannot store " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+        trimToSize();
+    }
+
+    private Bitmap read(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header);
+            if (header.getInt() != MAGIC
+                    || header.getInt() != FORMAT_VERSION
+                    || header.getInt() != mVersionHash) {
+                return null;
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int checksum = header.getInt();
+            if (width <= 0 || height <= 0
+                    || channel.size() != HEADER_SIZE + (long) width * height * 4) {
+                return null;
+            }
+
+            ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+            readFully(channel, pixels);
+            if (checksum(pixels) != checksum) {
+                return null;
+            }
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.copyPixelsFromBuffer(pixels);
+            /* Same as a fresh decode, so both draw at the same size. */
+            bitmap.setDensity(Bitmap.DENSITY_NONE);
+            return bitmap;
+        }
+    }
+
+    private void write(File file, Bitmap bitmap) throws IOException {
+        ByteBuffer pixels = ByteBuffer.allocate(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.rewind();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(mVersionHash)
+                .putInt(bitmap.getWidth())
+                .putInt(bitmap.getHeight())
+                .putInt(checksum(pixels));
+        header.flip();
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            FileChannel channel = out.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (pixels.hasRemaining()) {
+                channel.write(pixels);
+            }
+            out.getFD().sync();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the directory fits in the size limit.
+     */
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= mMaxBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (total <= mMaxBytes) {
+                break;
+            }
+            total -= file.length();
+            file.delete();
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(mDirectory, key.replaceAll("[^A-Za-z0-9_.-]", "_") + SUFFIX);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /* Leaves the buffer's position unchanged. */
+    private static int checksum(ByteBuffer buffer) {
+        Adler32 adler = new Adler32();
+        adler.update(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining());
+        return (int) adler.getValue();
+    }
+}
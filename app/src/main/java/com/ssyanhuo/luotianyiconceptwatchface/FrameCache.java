@@ -0,0 +1,168 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * Keeps the last rendered frame together with a key describing the visible state it was drawn
+ * for. Redundant invalidations with an unchanged key are served by blitting the stored frame.
+ * <p>
+ * When double buffered, frames are composed into a back buffer and swapped in when done, so the
+ * stored frame can be blitted from another thread while the next one is composed. Everything
+ * but {@link #draw(Canvas)} is then only called on the composing thread.
+ */
+class FrameCache {
+
+    private static final long NO_KEY = -1;
+
+    private final BitmapPool mPool;
+    private boolean mDoubleBuffered;
+    /* Key of the stored frame, and of the one being composed. */
+    private long mKey = NO_KEY;
+    private long mPendingKey = NO_KEY;
+    private Bitmap mBackFrame;
+    private Canvas mBackCanvas;
+    /* Canvas on the stored frame, for when it becomes the back buffer again. */
+    private Canvas mFrameCanvas;
+    private int mHitCount;
+    private int mMissCount;
+    private int mWidth;
+    private int mHeight;
+
+    /* The stored frame may be blitted while holding the lock. */
+    private final Object mFrameLock = new Object();
+    private Bitmap mFrame;
+
+    FrameCache(BitmapPool pool) {
+        mPool = pool;
+    }
+
+    /**
+     * Switches to double buffering, for when {@link #draw(Canvas)} is called on another thread.
+     * Call before the first frame.
+     */
+    void setDoubleBuffered(boolean doubleBuffered) {
+        mDoubleBuffered = doubleBuffered;
+    }
+
+    void setSize(int width, int height) {
+        if (width == mWidth && height == mHeight) {
+            return;
+        }
+        release();
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Returns a cleared canvas to render the frame for {@code key} into, or {@code null} if the
+     * stored frame already matches {@code key}. A frame that was begun has to be finished with
+     * {@link #endFrame()}.
+     */
+    Canvas beginFrame(long key) {
+        if (key == mKey) {
+            mHitCount++;
+            return null;
+        }
+        mMissCount++;
+        mPendingKey = key;
+        if (!mDoubleBuffered) {
+            /* Nobody else draws the stored frame, so it can be redrawn in place. */
+            mKey = NO_KEY;
+            if (mFrame == null) {
+                mFrame = mPool.acquire(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+                mFrameCanvas = new Canvas(mFrame);
+            }
+            mFrame.eraseColor(Color.BLACK);
+            return mFrameCanvas;
+        }
+        if (mBackFrame == null) {
+            mBackFrame = mPool.acquire(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mBackCanvas = new Canvas(mBackFrame);
+        }
+        mBackFrame.eraseColor(Color.BLACK);
+        return mBackCanvas;
+    }
+
+    /**
+     * Makes the frame begun last the stored one.
+     */
+    void endFrame() {
+        if (mDoubleBuffered) {
+            synchronized (mFrameLock) {
+                Bitmap frame = mFrame;
+                mFrame = mBackFrame;
+                mBackFrame = frame;
+            }
+            Canvas frameCanvas = mFrameCanvas;
+            mFrameCanvas = mBackCanvas;
+            mBackCanvas = frameCanvas;
+        }
+        mKey = mPendingKey;
+    }
+
+    /**
+     * Blits the stored frame and returns true, or returns false if there is none.
+     */
+    boolean draw(Canvas canvas) {
+        synchronized (mFrameLock) {
+            if (mFrame == null) {
+                return false;
+            }
+            canvas.drawBitmap(mFrame, 0, 0, null);
+            return true;
+        }
+    }
+
+    /**
+     * Forces the next frame to be rendered, for state changes that are not part of the key.
+     */
+    void invalidate() {
+        mKey = NO_KEY;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the frames to the pool and forces the next frame to be rendered. When double
+     * buffered, the stored frame is kept, since another thread may still be showing it.
+     */
+    void trim() {
+        if (!mDoubleBuffered) {
+            release();
+            return;
+        }
+        if (mBackFrame != null) {
+            mPool.release(mBackFrame);
+            mBackFrame = null;
+            mBackCanvas = null;
+        }
+        mKey = NO_KEY;
+    }
+
+    /**
+     * Returns both frames to the pool. The next frame is rendered into new ones.
+     */
+    void release() {
+        if (mBackFrame != null) {
+            mPool.release(mBackFrame);
+            mBackFrame = null;
+            mBackCanvas = null;
+        }
+        mKey = NO_KEY;
+        synchronized (mFrameLock) {
+            if (mFrame != null) {
+                mPool.release(mFrame);
+                mFrame = null;
+            }
+        }
+        mFrameCanvas = null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+/**
+ * Decides when the next interactive frame is due. The engine's update timer sleeps until then;
+ * ambient mode is driven by {@code onTimeTick} instead.
+ */
+interface FrameScheduler {
+
+    /**
+     * Returns the delay from {@code nowMs} until the next frame.
+     */
+    long getDelayToNextFrame(long nowMs);
+}
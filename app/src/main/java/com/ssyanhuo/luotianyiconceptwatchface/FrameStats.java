@@ -0,0 +1,170 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import java.io.PrintWriter;
+
+/**
+ * Per-stage frame timings and event counters for one engine. Timings go into fixed-size
+ * histograms so recording never allocates, and are only taken while enabled; counters are always
+ * kept since they cost a single increment. Each stage and counter is only written from one thread,
+ * so the render thread and the engine can share an instance.
+ */
+class FrameStats {
+
+    static final int STAGE_FRAME = 0;
+    static final int STAGE_HOUR_HAND = 1;
+    static final int STAGE_DIAL = 2;
+    static final int STAGE_HOUR_NUMBER = 3;
+    static final int STAGE_MINUTE_HAND = 4;
+    static final int STAGE_LOGO = 5;
+    static final int STAGE_AMBIENT = 6;
+    static final int STAGE_BLIT = 7;
+    /* Time a frame request waits for the render thread, in threaded mode. */
+    static final int STAGE_RENDER_QUEUE = 8;
+    /* Time from a tap to onTapCommand, i.e. how long the main looper kept it waiting. */
+    static final int STAGE_TAP_DISPATCH = 9;
+    /* Time from a tap to the first frame on screen that was rendered after it. */
+    static final int STAGE_TAP_TO_FRAME = 10;
+    private static final int STAGE_COUNT = 11;
+
+    private static final String[] STAGE_NAMES = {
+            "frame", "hour hand", "dial", "hour number", "minute hand", "logo", "reduced ambient",
+            "blit", "render queue", "tap dispatch", "tap to frame"
+    };
+
+    static final int COUNTER_WAKEUPS = 0;
+    static final int COUNTER_INVALIDATIONS = 1;
+    static final int COUNTER_FRAMES = 2;
+    static final int COUNTER_FRAMES_REUSED = 3;
+    static final int COUNTER_LAYER_REBUILDS = 4;
+    static final int COUNTER_ASSET_LOADS = 5;
+    private static final int COUNTER_COUNT = 6;
+
+    private static final String[] COUNTER_NAMES = {
+            "scheduler wakeups", "invalidations", "frames", "frames reused", "layer rebuilds",
+            "asset loads"
+    };
+
+    /* Shared by all engines so timing can be switched on for the whole process at once. */
+    private static volatile boolean sEnabled;
+
+    private final Histogram[] mStages = new Histogram[STAGE_COUNT];
+    private final long[] mCounters = new long[COUNTER_COUNT];
+
+    FrameStats() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStages[i] = new Histogram();
+        }
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Returns a start timestamp for {@link #endStage(int, long)}, or 0 while disabled.
+     */
+    long startStage() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    void endStage(int stage, long startNanos) {
+        if (startNanos != 0) {
+            mStages[stage].record((System.nanoTime() - startNanos) / 1000);
+        }
+    }
+
+    /**
+     * Records a duration measured by the caller, while enabled.
+     */
+    void recordStage(int stage, long nanos) {
+        if (sEnabled) {
+            mStages[stage].record(nanos / 1000);
+        }
+    }
+
+    Histogram getStage(int stage) {
+        return mStages[stage];
+    }
+
+    void count(int counter) {
+        mCounters[counter]++;
+    }
+
+    void reset() {
+        for (Histogram stage : mStages) {
+            stage.reset();
+        }
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            mCounters[i] = 0;
+        }
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Frame stats (" + (sEnabled ? "timing on" : "timing off") + "):");
+        for (int i = 0; i < COUNTER_COUNT; i++) {
+            writer.print(prefix);
+            writer.println("  " + COUNTER_NAMES[i] + ": " + mCounters[i]);
+        }
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            Histogram stage = mStages[i];
+            if (stage.getCount() == 0) {
+                continue;
+            }
+            writer.print(prefix);
+            writer.println("  " + STAGE_NAMES[i] + ": n=" + stage.getCount()
+                    + " p50<=" + stage.getPercentile(50) + "us"
+                    + " p95<=" + stage.getPercentile(95) + "us"
+                    + " max=" + stage.getMax() + "us");
+        }
+    }
+
+    /**
+     * Histogram of microsecond durations in power-of-two buckets. Percentiles are reported as
+     * the upper bound of the bucket they fall in.
+     */
+    static class Histogram {
+        /* Bucket i holds durations below 2^i us; the last one takes everything above. */
+        private static final int BUCKET_COUNT = 24;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mMax;
+
+        void record(long micros) {
+            int bucket = 64 - Long.numberOfLeadingZeros(Math.max(micros, 0));
+            mBuckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+            mCount++;
+            mMax = Math.max(mMax, micros);
+        }
+
+        long getCount() {
+            return mCount;
+        }
+
+        long getMax() {
+            return mMax;
+        }
+
+        long getPercentile(int percentile) {
+            long threshold = (mCount * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                /* The last bucket has no upper bound of its own. */
+                if (seen >= threshold && i < BUCKET_COUNT - 1) {
+                    return Math.min(1L << i, mMax);
+                }
+            }
+            return mMax;
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mMax = 0;
+        }
+    }
+}
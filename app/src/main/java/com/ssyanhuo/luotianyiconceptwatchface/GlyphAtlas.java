@@ -0,0 +1,121 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * Pre-rasterized text of the face: the twelve hour numerals with their circle, and the logo.
+ * Each display mode gets one atlas bitmap holding all thirteen cells side by side, painted with
+ * that mode's paints the first time it is drawn, so drawing a glyph is a sub-rect blit instead of
+ * shaping and rasterizing text. Atlases are only repainted after {@link #invalidate()}.
+ */
+class GlyphAtlas {
+
+    private static final int MODE_COUNT = 2;
+    private static final int HOUR_COUNT = 12;
+
+    /**
+     * Paints the glyphs at their position on the face and reports where they are.
+     */
+    interface Painter {
+        /**
+         * Returns the face area covered by any hour numeral and its circle.
+         */
+        void getHourNumberBounds(Rect outBounds);
+
+        /**
+         * Returns the face area covered by the logo.
+         */
+        void getLogoBounds(Rect outBounds);
+
+        /**
+         * Paints the numeral for {@code hour} (1 to 12) and its circle.
+         */
+        void paintHourNumber(Canvas canvas, int hour);
+
+        void paintLogo(Canvas canvas);
+    }
+
+    private final Painter mPainter;
+    private final BitmapPool mPool;
+    private final Bitmap[] mAtlases = new Bitmap[MODE_COUNT];
+    private final Rect mHourNumberBounds = new Rect();
+    private final Rect mLogoBounds = new Rect();
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    GlyphAtlas(Painter painter, BitmapPool pool) {
+        mPainter = painter;
+        mPool = pool;
+    }
+
+    /**
+     * Drops the atlases so they are repainted with the current style and geometry.
+     */
+    void invalidate() {
+        for (int i = 0; i < MODE_COUNT; i++) {
+            if (mAtlases[i] != null) {
+                mPool.release(mAtlases[i]);
+                mAtlases[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Draws the numeral for {@code hour} (1 to 12) in one of the {@link DialLayerCache} modes,
+     * moved by {@code dx}, {@code dy} from its usual position.
+     */
+    void drawHourNumber(Canvas canvas, int mode, int hour, int dx, int dy) {
+        Bitmap atlas = getAtlas(mode);
+        int cellWidth = mHourNumberBounds.width();
+        mSrc.set(cellWidth * (hour - 1), 0, cellWidth * hour, mHourNumberBounds.height());
+        mDst.set(mHourNumberBounds);
+        mDst.offset(dx, dy);
+        canvas.drawBitmap(atlas, mSrc, mDst, null);
+    }
+
+    void drawLogo(Canvas canvas, int mode) {
+        Bitmap atlas = getAtlas(mode);
+        int left = mHourNumberBounds.width() * HOUR_COUNT;
+        mSrc.set(left, 0, left + mLogoBounds.width(), mLogoBounds.height());
+        canvas.drawBitmap(atlas, mSrc, mLogoBounds, null);
+    }
+
+    void release() {
+        invalidate();
+    }
+
+    private Bitmap getAtlas(int mode) {
+        Bitmap atlas = mAtlases[mode];
+        if (atlas == null) {
+            mPainter.getHourNumberBounds(mHourNumberBounds);
+            mPainter.getLogoBounds(mLogoBounds);
+            int cellWidth = mHourNumberBounds.width();
+            atlas = mPool.acquire(cellWidth * HOUR_COUNT + mLogoBounds.width(),
+                    Math.max(mHourNumberBounds.height(), mLogoBounds.height()),
+                    Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(atlas);
+            for (int hour = 1; hour <= HOUR_COUNT; hour++) {
+                beginCell(canvas, cellWidth * (hour - 1), mHourNumberBounds);
+                mPainter.paintHourNumber(canvas, hour);
+                canvas.restore();
+            }
+            beginCell(canvas, cellWidth * HOUR_COUNT, mLogoBounds);
+            mPainter.paintLogo(canvas);
+            canvas.restore();
+            mAtlases[mode] = atlas;
+        }
+        return atlas;
+    }
+
+    /**
+     * Maps {@code bounds} on the face to the cell at {@code left} and clips to it, so glyphs
+     * cannot bleed into their neighbours. The caller restores the canvas after painting.
+     */
+    private static void beginCell(Canvas canvas, int left, Rect bounds) {
+        canvas.save();
+        canvas.translate(left - bounds.left, -bounds.top);
+        canvas.clipRect(bounds);
+    }
+}
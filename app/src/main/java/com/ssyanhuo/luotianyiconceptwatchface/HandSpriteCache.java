@@ -0,0 +1,128 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * A pre-rendered full-screen sprite of a hand at the angle it is shown at, including anything
+ * expensive such as its shadow. Only the current angle is kept, one sprite per variant: the hour
+ * hand moves on every minute and does not come back to an angle for 12 hours, so older angles
+ * are never hit again. What the sprite saves is the blur of every frame that is composed again
+ * within the minute, e.g. after a mode switch or a quality tier change. Looking a sprite up does
+ * not allocate, and a new angle is painted over the old sprite with one shared canvas.
+ * <p>
+ * Sprites are opaque: the hand is painted onto the color it is first drawn on, so blitting the
+ * sprite there gives exactly the pixels of the hand drawn in place, shadow included.
+ */
+class HandSpriteCache {
+
+    /*
+     * The hour hand moves 30 degrees per hour, i.e. half a degree per minute, so it never needs
+     * finer steps than that.
+     */
+    static final float ANGLE_STEP = 0.5f;
+    private static final int ANGLE_STEPS = (int) (360 / ANGLE_STEP);
+    private static final int VARIANT_COUNT = 2;
+    private static final int NO_STEP = -1;
+
+    /**
+     * Paints the hand onto a sprite.
+     */
+    interface Painter {
+        /**
+         * Paints the hand rotated clockwise by {@code degrees} around the surface center, styled
+         * for {@code variant}.
+         */
+        void paintHand(Canvas canvas, int variant, float degrees);
+    }
+
+    private final Painter mPainter;
+    private final BitmapPool mPool;
+    private final int mBackground;
+    private final Bitmap[] mSprites = new Bitmap[VARIANT_COUNT];
+    /* Angle step each sprite shows, or NO_STEP if it has to be painted. */
+    private final int[] mSteps = {NO_STEP, NO_STEP};
+    /* Pointed at a sprite only while painting it. */
+    private final Canvas mCanvas = new Canvas();
+    private int mWidth;
+    private int mHeight;
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * Creates a cache of sprites for a hand that is drawn onto an opaque {@code background}
+     * before anything else.
+     */
+    HandSpriteCache(Painter painter, BitmapPool pool, int background) {
+        mPainter = painter;
+        mPool = pool;
+        mBackground = background;
+    }
+
+    /**
+     * Sets the sprite size, which is the surface size.
+     */
+    void setSize(int width, int height) {
+        if (width == mWidth && height == mHeight) {
+            return;
+        }
+        release();
+        mWidth = width;
+        mHeight = height;
+    }
+
+    /**
+     * Returns the hand rotated clockwise by {@code degrees} around the surface center.
+     * {@code variant} is 0 or 1, for the two styles the hand can be drawn in. The sprite is only
+     * valid until the next call for the same variant.
+     */
+    Bitmap getSprite(int variant, float degrees) {
+        int step = Math.round(degrees / ANGLE_STEP) % ANGLE_STEPS;
+        if (step < 0) {
+            step += ANGLE_STEPS;
+        }
+        Bitmap sprite = mSprites[variant];
+        if (sprite != null && mSteps[variant] == step) {
+            mHitCount++;
+            return sprite;
+        }
+        mMissCount++;
+        if (sprite == null) {
+            sprite = mPool.acquire(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            mSprites[variant] = sprite;
+        }
+        sprite.eraseColor(mBackground);
+        mCanvas.setBitmap(sprite);
+        mPainter.paintHand(mCanvas, variant, step * ANGLE_STEP);
+        mCanvas.setBitmap(null);
+        mSteps[variant] = step;
+        return sprite;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Drops the sprites so they are repainted with the current style.
+     */
+    void invalidate() {
+        for (int i = 0; i < VARIANT_COUNT; i++) {
+            if (mSprites[i] != null) {
+                mPool.release(mSprites[i]);
+                mSprites[i] = null;
+            }
+            mSteps[i] = NO_STEP;
+        }
+    }
+
+    void release() {
+        invalidate();
+        mWidth = 0;
+        mHeight = 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+/**
+ * Immutable description of the display mode a frame is rendered in. The engine swaps in a new
+ * instance whenever one of the flags changes.
+ */
+final class ModeState {
+
+    static final ModeState INTERACTIVE =
+            new ModeState(false, false, false, false, QualityGovernor.TIER_FULL);
+
+    /* Number of low bits used by packedKey(). */
+    static final int KEY_BITS = 6;
+
+    final boolean ambient;
+    final boolean lowBitAmbient;
+    final boolean burnInProtection;
+    final boolean muteMode;
+    /* One of the QualityGovernor tiers, for interactive mode. */
+    final int quality;
+
+    ModeState(boolean ambient, boolean lowBitAmbient, boolean burnInProtection,
+              boolean muteMode, int quality) {
+        this.ambient = ambient;
+        this.lowBitAmbient = lowBitAmbient;
+        this.burnInProtection = burnInProtection;
+        this.muteMode = muteMode;
+        this.quality = quality;
+    }
+
+    ModeState withAmbient(boolean ambient) {
+        return new ModeState(ambient, lowBitAmbient, burnInProtection, muteMode, quality);
+    }
+
+    ModeState withProperties(boolean lowBitAmbient, boolean burnInProtection) {
+        return new ModeState(ambient, lowBitAmbient, burnInProtection, muteMode, quality);
+    }
+
+    ModeState withMuteMode(boolean muteMode) {
+        return new ModeState(ambient, lowBitAmbient, burnInProtection, muteMode, quality);
+    }
+
+    ModeState withQuality(int quality) {
+        return new ModeState(ambient, lowBitAmbient, burnInProtection, muteMode, quality);
+    }
+
+    /**
+     * Returns whether the screen can only show a reduced ambient face: no background image,
+     * and on low-bit screens no anti-aliasing.
+     */
+    boolean isReducedAmbient() {
+        return ambient && (lowBitAmbient || burnInProtection);
+    }
+
+    /**
+     * Returns the {@link PixelProcessor} style of the ambient background image. A gray version
+     * only looks nice on screens that can show it in ambient mode. Burn-in protected screens
+     * (slight movements in pixels, not great for images going all the way to edges) and low-bit
+     * screens get a dithered black and white version instead.
+     */
+    int getAmbientStyle() {
+        if (burnInProtection) {
+            return PixelProcessor.STYLE_BURN_IN;
+        } else if (lowBitAmbient) {
+            return PixelProcessor.STYLE_LOW_BIT;
+        }
+        return PixelProcessor.STYLE_GRAY;
+    }
+
+    /**
+     * Returns whether {@code other} needs different cached layers than this state. Switching
+     * ambient mode alone does not, since each mode has its own layers.
+     */
+    boolean hasSameStyle(ModeState other) {
+        return lowBitAmbient == other.lowBitAmbient
+                && burnInProtection == other.burnInProtection
+                && muteMode == other.muteMode
+                && quality == other.quality;
+    }
+
+    /**
+     * Packs the state into the low {@link #KEY_BITS} bits, for use in cache keys. Equal states
+     * get equal keys and different states different ones:
+     * <pre>
+     * bits 5-4  quality tier
+     * bit  3    ambient
+     * bit  2    low-bit ambient
+     * bit  1    burn-in protection
+     * bit  0    mute mode
+     * </pre>
+     */
+    int packedKey() {
+        return (quality << 4)
+                | (ambient ? 1 << 3 : 0)
+                | (lowBitAmbient ? 1 << 2 : 0)
+                | (burnInProtection ? 1 << 1 : 0)
+                | (muteMode ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ModeState)) {
+            return false;
+        }
+        ModeState other = (ModeState) o;
+        return ambient == other.ambient && hasSameStyle(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return packedKey();
+    }
+}
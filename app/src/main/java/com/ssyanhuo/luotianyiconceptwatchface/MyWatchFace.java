@@ -1,24 +1,18 @@
 package com.ssyanhuo.luotianyiconceptwatchface;
 
 import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
-import android.graphics.Path;
 import android.graphics.Rect;
-import android.graphics.Typeface;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
-
-import androidx.palette.graphics.Palette;
+import android.os.PowerManager;
+import android.os.SystemClock;
 
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
@@ -26,11 +20,12 @@ import android.support.wearable.watchface.WatchFaceStyle;
 import android.view.Gravity;
 import android.view.SurfaceHolder;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.lang.ref.WeakReference;
-import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,21 +43,76 @@ import java.util.concurrent.TimeUnit;
 public class MyWatchFace extends CanvasWatchFaceService {
 
     /*
-     * Updates rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
+     * Updates rate in milliseconds for interactive mode. There is no second hand, so nothing
+     * visible changes until the next minute.
      */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.MINUTES.toMillis(1);
 
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /* Taps within the window that open the easter egg. */
+    private static final int EASTER_EGG_TAP_COUNT = 12;
+    private static final long EASTER_EGG_WINDOW_MS = 3000;
+
+    /* Longest an ambient update keeps the device awake until its frame is on screen. */
+    private static final long AMBIENT_FRAME_TIMEOUT_MS = 200;
+
+    /* Whether engines created from now on render on a RenderThread. */
+    private static volatile boolean sThreadedRendering;
+
+    /**
+     * Decoded assets shared by all engines of the process, e.g. the active face and the one
+     * shown in the picker.
+     */
+    private static final AssetRegistry sAssetRegistry = new AssetRegistry();
+
+    /* Live engines, only touched on the main thread. */
+    private final List<Engine> mEngines = new ArrayList<>();
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
+    /**
+     * Passes memory pressure on to every live engine, which drops what it can rebuild, and to
+     * the cached previews, which outlive the settings screen.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        for (Engine engine : mEngines) {
+            engine.onTrimMemory(level);
+        }
+        PreviewRenderer.trimMemory(level);
+    }
+
+    /**
+     * Prints the state of every engine. Frame timing can be switched on and off at runtime with
+     * {@code adb shell dumpsys activity service .MyWatchFace stats on|off|reset}, and
+     * {@code threaded on|off} picks whether engines created afterwards, e.g. when the face is
+     * picked again, render on a {@link RenderThread}.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (args != null && args.length >= 2 && "stats".equals(args[0])) {
+            if ("on".equals(args[1])) {
+                FrameStats.setEnabled(true);
+            } else if ("off".equals(args[1])) {
+                FrameStats.setEnabled(false);
+            }
+        }
+        if (args != null && args.length >= 2 && "threaded".equals(args[0])) {
+            sThreadedRendering = "on".equals(args[1]);
+            writer.println("Threaded rendering " + (sThreadedRendering ? "on" : "off")
+                    + " for new engines");
+        }
+        super.dump(fd, writer, args);
+    }
+
     private static class EngineHandler extends Handler {
         private final WeakReference<MyWatchFace.Engine> mWeakReference;
 
@@ -83,52 +133,43 @@ public class MyWatchFace extends CanvasWatchFaceService {
         }
     }
 
-    private class Engine extends CanvasWatchFaceService.Engine {
-        private static final float HOUR_STROKE_WIDTH = 5f;
-        private static final float MINUTE_STROKE_WIDTH = 3f;
-        private static final float SECOND_TICK_STROKE_WIDTH = 2f;
+    private class Engine extends CanvasWatchFaceService.Engine implements AssetLoader.Callback,
+            PaletteCache.Callback, RenderThread.Callback {
 
-        private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 6f;
-
-        private static final int SHADOW_RADIUS = 6;
-
-        private final int TIANYI_BLUE = Color.rgb(102,204,255);
-
-        /* Handler to update the time once a second in interactive mode. */
+        /* Handler to update the time once a minute in interactive mode. */
         private final Handler mUpdateTimeHandler = new EngineHandler(this);
-        private Calendar mCalendar;
+        private final FrameScheduler mFrameScheduler =
+                new AlignedFrameScheduler(INTERACTIVE_UPDATE_RATE_MS);
+        private final TimeSource mTimeSource =
+                new TimeSource(TimeSource.SYSTEM_CLOCK, TimeZone.getDefault());
         private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                updateTimeZone();
+                requestRedraw();
             }
         };
         private boolean mRegisteredTimeZoneReceiver = false;
-        private boolean mMuteMode;
-        private float mCenterX;
-        private float mCenterY;
-        private float sMinuteHandLength;
-        private float sHourHandLength;
-        private int mWatchHandColor;
-        private int mWatchHandHighlightColor;
-        private int mWatchHandShadowColor;
-        private Paint mHourPaint;
-        private Paint mMinutePaint;
-        private Paint mHourTickPaint;
-        private Paint mMinuteTickPaint;
-        private Paint mBackgroundPaint;
-        private Paint mCirclePaint;
-        private Paint mTianyiPaint;
-        private Paint mHourNumberPaint;
-        private Bitmap mBackgroundBitmap;
-        private Bitmap mGrayBackgroundBitmap;
-        private Bitmap mHourBitmap;
-        private boolean mAmbient;
-        private boolean mLowBitAmbient;
-        private boolean mBurnInProtection;
-        private int touchCount;
-        private boolean timerRunning;
+        private ModeState mMode = ModeState.INTERACTIVE;
+        private final FrameStats mStats = new FrameStats();
+        private final ConceptWatchFaceRenderer mRenderer = new ConceptWatchFaceRenderer(mStats);
+        /* Set in threaded mode, and then the only user of mRenderer. */
+        private RenderThread mRenderThread;
+        /* Number of the latest frame asked from the render thread. */
+        private int mRequestedFrame;
+        /* Event time of the oldest tap that is not on screen yet, 0 if none, and its frame. */
+        private long mTapTimeMs;
+        private int mTapFrame;
+        /* Number of the render thread frame last blitted. */
+        private int mShownFrame;
+        /* Held in ambient mode from a frame request until that frame is blitted. */
+        private PowerManager.WakeLock mAmbientFrameWakeLock;
+        private int mAmbientFrame;
+        private AssetLoader mAssetLoader;
+        private PaletteCache mPaletteCache;
+        private QualityGovernor mQualityGovernor;
+        private final TapGestureDetector mEasterEggTaps =
+                new TapGestureDetector(EASTER_EGG_TAP_COUNT, EASTER_EGG_WINDOW_MS);
 
         @Override
         public void onCreate(SurfaceHolder holder) {
@@ -139,170 +180,95 @@ public class MyWatchFace extends CanvasWatchFaceService {
                     .setAcceptsTapEvents(true)
                     .build());
 
-            mCalendar = Calendar.getInstance();
-            touchCount = 0;
-            initializeBackground();
-            initializeWatchFace();
+            mAssetLoader = new AssetLoader(MyWatchFace.this, sAssetRegistry);
+            mPaletteCache = new PaletteCache(MyWatchFace.this);
+            mQualityGovernor =
+                    new QualityGovernor(QualityGovernor.getSystemPowerState(MyWatchFace.this));
+            if (sThreadedRendering) {
+                mRenderThread = new RenderThread(mRenderer, mStats, this);
+                PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+                mAmbientFrameWakeLock = powerManager.newWakeLock(
+                        PowerManager.PARTIAL_WAKE_LOCK, "LuotianyiWatchFace:AmbientFrame");
+                mAmbientFrameWakeLock.setReferenceCounted(false);
+            }
+            mPaletteCache.loadVibrantColor(R.drawable.bg, Color.RED, this);
+            mEngines.add(this);
         }
 
-        private void initializeBackground() {
-            mBackgroundPaint = new Paint();
-            mBackgroundPaint.setColor(Color.BLACK);
-            mBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.bg);
-            Palette.from(mBackgroundBitmap).generate(new Palette.PaletteAsyncListener() {
-                @Override
-                public void onGenerated(Palette palette) {
-                    if (palette != null) {
-                        mWatchHandHighlightColor = palette.getVibrantColor(Color.RED);
-                        mWatchHandColor = Color.WHITE;
-                        mWatchHandShadowColor = Color.BLACK;
-                        updateWatchHandStyle();
-                    }
-                }
-            });
+        @Override
+        public void onAssetsLoaded(AssetLoader.Assets assets) {
+            if (mRenderThread != null) {
+                mRenderThread.setAssets(assets);
+            } else {
+                mRenderer.setAssets(assets);
+            }
+            mStats.count(FrameStats.COUNTER_ASSET_LOADS);
+            requestRedraw();
         }
 
-        private void initializeWatchFace() {
-            /* Set defaults for colors */
-            mWatchHandColor = Color.WHITE;
-            mWatchHandHighlightColor = Color.RED;
-            mWatchHandShadowColor = Color.BLACK;
-
-            mHourPaint = new Paint();
-            mHourPaint.setColor(mWatchHandColor);
-            mHourPaint.setStrokeWidth(HOUR_STROKE_WIDTH);
-            mHourPaint.setAntiAlias(true);
-            mHourPaint.setStrokeCap(Paint.Cap.ROUND);
-            mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-            mHourBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.hour);
-
-            mMinutePaint = new Paint();
-            mMinutePaint.setColor(TIANYI_BLUE);
-            mMinutePaint.setStrokeWidth(MINUTE_STROKE_WIDTH / 4);
-            mMinutePaint.setAntiAlias(true);
-            mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
-            mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            mMinutePaint.setStyle(Paint.Style.FILL_AND_STROKE);
-
-            mHourTickPaint = new Paint();
-            mHourTickPaint.setColor(mWatchHandColor);
-            mHourTickPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mHourTickPaint.setAntiAlias(true);
-            mHourTickPaint.setStrokeCap(Paint.Cap.ROUND);
-            mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            mHourTickPaint.setStyle(Paint.Style.STROKE);
-
-            mMinuteTickPaint = new Paint();
-            mMinuteTickPaint.setColor(mWatchHandColor);
-            mMinuteTickPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mMinuteTickPaint.setAntiAlias(true);
-            mMinuteTickPaint.setStrokeCap(Paint.Cap.ROUND);
-            mMinuteTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            mMinuteTickPaint.setStyle(Paint.Style.STROKE);
-
-            mCirclePaint = new Paint();
-            mCirclePaint.setColor(TIANYI_BLUE);
-            mCirclePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            mCirclePaint.setAntiAlias(true);
-            mCirclePaint.setStyle(Paint.Style.FILL);
-
-            mTianyiPaint = new Paint();
-            mTianyiPaint.setColor(TIANYI_BLUE);
-            mTianyiPaint.setTextAlign(Paint.Align.CENTER);
-            mTianyiPaint.setTypeface(Typeface.createFromAsset(getAssets(), "font/simhei.ttf"));
-            mTianyiPaint.setFakeBoldText(true);
-            mTianyiPaint.setTextSize(56);
-            mTianyiPaint.setAntiAlias(true);
-
-            mHourNumberPaint = new Paint();
-            mHourNumberPaint.setColor(Color.WHITE);
-            mHourNumberPaint.setTextAlign(Paint.Align.CENTER);
-            mHourNumberPaint.setTypeface(Typeface.createFromAsset(getAssets(), "font/simhei.ttf"));
-            mHourNumberPaint.setFakeBoldText(true);
-            mHourNumberPaint.setTextSize(36);
-            mHourNumberPaint.setAntiAlias(true);
-            mHourNumberPaint.setStyle(Paint.Style.STROKE);
-            mHourNumberPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
+        @Override
+        public void onVibrantColorLoaded(int color) {
+            if (mRenderThread != null) {
+                mRenderThread.setWatchHandColors(Color.WHITE, color, Color.BLACK);
+            } else {
+                mRenderer.setWatchHandColors(Color.WHITE, color, Color.BLACK);
+            }
+            requestRedraw();
         }
 
         @Override
         public void onDestroy() {
+            mEngines.remove(this);
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            /*
+             * The renderer gives its assets back to the registry itself, on the render thread if
+             * there is one, so nothing is recycled while a frame is still being drawn from it.
+             */
+            if (mRenderThread != null) {
+                mRenderThread.release();
+                mAmbientFrameWakeLock.release();
+            } else {
+                mRenderer.release();
+            }
+            mAssetLoader.release();
+            mPaletteCache.release();
             super.onDestroy();
         }
 
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
-            mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
-            mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            mMode = mMode.withProperties(
+                    properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false),
+                    properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false));
+            handOverMode();
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            requestRedraw();
         }
 
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
-            mAmbient = inAmbientMode;
-
-            updateWatchHandStyle();
+            mMode = mMode.withAmbient(inAmbientMode);
+            handOverMode();
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
             updateTimer();
         }
 
-        private void updateWatchHandStyle() {
-            if (mAmbient) {
-                mHourPaint.setColor(Color.WHITE);
-                mMinutePaint.setColor(TIANYI_BLUE);
-                mHourTickPaint.setColor(Color.WHITE);
-
-                mHourPaint.setAntiAlias(false);
-                mHourTickPaint.setAntiAlias(false);
-                mHourNumberPaint.setAntiAlias(false);
-
-                mHourPaint.clearShadowLayer();
-                mMinutePaint.clearShadowLayer();
-                mHourTickPaint.clearShadowLayer();
-
-                mTianyiPaint.setAlpha(255);
-                mMinuteTickPaint.setAlpha(0);
-                mHourNumberPaint.setAlpha(255);
-            } else {
-                mHourPaint.setColor(mWatchHandColor);
-                mMinutePaint.setColor(TIANYI_BLUE);
-                mHourTickPaint.setColor(mWatchHandColor);
-
-                mHourPaint.setAntiAlias(true);
-                mHourTickPaint.setAntiAlias(true);
-                mHourNumberPaint.setAntiAlias(true);
-
-                mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mHourTickPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-
-                mTianyiPaint.setAlpha(0);
-                mMinuteTickPaint.setAlpha(255);
-                mHourNumberPaint.setAlpha(0);
-            }
-        }
-
         @Override
         public void onInterruptionFilterChanged(int interruptionFilter) {
             super.onInterruptionFilterChanged(interruptionFilter);
             boolean inMuteMode = (interruptionFilter == WatchFaceService.INTERRUPTION_FILTER_NONE);
 
             /* Dim display in mute mode. */
-            if (mMuteMode != inMuteMode) {
-                mMuteMode = inMuteMode;
-                mHourPaint.setAlpha(inMuteMode ? 100 : 255);
-                mMinutePaint.setAlpha(inMuteMode ? 100 : 255);
-                invalidate();
+            if (mMode.muteMode != inMuteMode) {
+                mMode = mMode.withMuteMode(inMuteMode);
+                requestRedraw();
             }
         }
 
@@ -310,55 +276,13 @@ public class MyWatchFace extends CanvasWatchFaceService {
         public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
             super.onSurfaceChanged(holder, format, width, height);
 
-            /*
-             * Find the coordinates of the center point on the screen, and ignore the window
-             * insets, so that, on round watches with a "chin", the watch face is centered on the
-             * entire screen, not just the usable portion.
-             */
-            mCenterX = width / 2f;
-            mCenterY = height / 2f;
-
-            /*
-             * Calculate lengths of different hands based on watch screen size.
-             */
-            sMinuteHandLength = (float) (mCenterX * 0.75);
-            sHourHandLength = (float) (mCenterX * 0.5);
-
-
-            /* Scale loaded background image (more efficient) if surface dimensions change. */
-            float scale = ((float) width) / (float) mBackgroundBitmap.getWidth();
-
-            mBackgroundBitmap = Bitmap.createScaledBitmap(mBackgroundBitmap,
-                    (int) (mBackgroundBitmap.getWidth() * scale),
-                    (int) (mBackgroundBitmap.getHeight() * scale), true);
-
-            /*
-             * Create a gray version of the image only if it will look nice on the device in
-             * ambient mode. That means we don't want devices that support burn-in
-             * protection (slight movements in pixels, not great for images going all the way to
-             * edges) and low ambient mode (degrades image quality).
-             *
-             * Also, if your watch face will know about all images ahead of time (users aren't
-             * selecting their own photos for the watch face), it will be more
-             * efficient to create a black/white version (png, etc.) and load that when you need it.
-             */
-            if (!mBurnInProtection && !mLowBitAmbient) {
-                initGrayBackgroundBitmap();
+            if (mRenderThread != null) {
+                mRenderThread.setSurfaceSize(width, height);
+                requestRedraw();
+            } else {
+                mRenderer.setSurfaceSize(width, height);
             }
-        }
-
-        private void initGrayBackgroundBitmap() {
-            mGrayBackgroundBitmap = Bitmap.createBitmap(
-                    mBackgroundBitmap.getWidth(),
-                    mBackgroundBitmap.getHeight(),
-                    Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(mGrayBackgroundBitmap);
-            Paint grayPaint = new Paint();
-            ColorMatrix colorMatrix = new ColorMatrix();
-            colorMatrix.setSaturation(0);
-            ColorMatrixColorFilter filter = new ColorMatrixColorFilter(colorMatrix);
-            grayPaint.setColorFilter(filter);
-            canvas.drawBitmap(mBackgroundBitmap, 0, 0, grayPaint);
+            mAssetLoader.load(width, height, mMode.getAmbientStyle(), this);
         }
 
         /**
@@ -367,6 +291,8 @@ public class MyWatchFace extends CanvasWatchFaceService {
          */
         @Override
         public void onTapCommand(int tapType, int x, int y, long eventTime) {
+            mStats.recordStage(FrameStats.STAGE_TAP_DISPATCH,
+                    TimeUnit.MILLISECONDS.toNanos(SystemClock.uptimeMillis() - eventTime));
             switch (tapType) {
                 case TAP_TYPE_TOUCH:
                     // The user has started touching the screen.
@@ -376,140 +302,64 @@ public class MyWatchFace extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     // The user has completed the tap gesture.
-                    touchCount++;
-                    if (!timerRunning){
-                        timerRunning = true;
-                        Timer timer = new Timer();
-                        TimerTask timerTask = new TimerTask() {
-                            @Override
-                            public void run() {
-                                touchCount = 0;
-                                timerRunning = false;
-                            }
-                        };
-                        timer.schedule(timerTask, 3000);
-                    }
-                    if(touchCount >= 12){
-                        touchCount = 0;
+                    if (mEasterEggTaps.onTap(eventTime)) {
                         Intent intent = new Intent();
                         intent.setClass(getApplicationContext(), EasterActivity.class);
                         startActivity(intent);
                     }
             }
-            invalidate();
+            requestRedraw();
+            if (mTapTimeMs == 0) {
+                mTapTimeMs = eventTime;
+                mTapFrame = mRequestedFrame;
+            }
         }
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            drawHourWatchHand(canvas);
-            drawBackground(canvas);
-            drawHourNumber(canvas);
-            drawWatchFace(canvas);
-            drawTianyiLogo(canvas);
-        }
-        private void drawHourWatchHand(Canvas canvas){
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
-            canvas.save();
-
-            canvas.rotate(hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(mCenterX,mCenterX,mCenterX-sHourHandLength,mCenterY-sHourHandLength,mHourPaint);
-            double scale = (2 * mCenterX / mHourBitmap.getWidth());
-            mHourBitmap = Bitmap.createScaledBitmap(mHourBitmap, (int)(mHourBitmap.getWidth() * scale), (int)(mHourBitmap.getWidth() * scale), false);
-            canvas.drawBitmap(mHourBitmap, 0 ,0 ,mHourPaint);
-
-            canvas.restore();
-        }
-        private void drawBackground(Canvas canvas) {
-
-            if (mAmbient && (mLowBitAmbient || mBurnInProtection)) {
-                canvas.drawColor(Color.BLACK);
-            } else if (mAmbient) {
-                canvas.drawBitmap(mGrayBackgroundBitmap, 0, 0, mBackgroundPaint);
+            boolean showsTap;
+            if (mRenderThread != null) {
+                mShownFrame = mRenderThread.drawFrame(canvas);
+                showsTap = mShownFrame >= mTapFrame;
+                if (mAmbientFrameWakeLock.isHeld() && mShownFrame >= mAmbientFrame) {
+                    mAmbientFrameWakeLock.release();
+                }
             } else {
-                canvas.drawBitmap(mBackgroundBitmap, 0, 0, mBackgroundPaint);
+                long start = System.nanoTime();
+                mRenderer.render(canvas, mTimeSource.update(), mMode);
+                onFrameCost(mMode, System.nanoTime() - start, mRenderer.wasLastFrameSteady());
+                showsTap = true;
             }
-        }
 
-        private void drawHourNumber(Canvas canvas){
-            int mHour = mCalendar.get(Calendar.HOUR);
-            if (mHour == 0){mHour = 12;}
-            canvas.drawText(String.valueOf(mHour), mCenterX,mCenterX + 96, mHourNumberPaint);
-            canvas.drawCircle(mCenterX, mCenterX + 82, 24, mHourNumberPaint);
+            if (mTapTimeMs != 0 && showsTap) {
+                mStats.recordStage(FrameStats.STAGE_TAP_TO_FRAME,
+                        TimeUnit.MILLISECONDS.toNanos(SystemClock.uptimeMillis() - mTapTimeMs));
+                mTapTimeMs = 0;
+            }
         }
 
-        private void drawWatchFace(Canvas canvas) {
-
-            /*
-             * Draw ticks. Usually you will want to bake this directly into the photo, but in
-             * cases where you want to allow users to select their own photos, this dynamically
-             * creates them on top of the photo.
-             */
-            float innerTickRadius = mCenterX - 22;
-            float outerTickRadius = mCenterX - 4;
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++) {
-                if(tickIndex == 0){continue;}
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 12);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mHourTickPaint);
-            }
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                if(tickIndex % 5 == 0){continue;}
-                if(tickIndex == 59 || tickIndex == 0 || tickIndex == 1){continue;}
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 60);
-                float innerX = (float) Math.sin(tickRot) * (innerTickRadius + 6);
-                float innerY = (float) -Math.cos(tickRot) * (innerTickRadius + 6);
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                                mCenterX + outerX, mCenterY + outerY, mMinuteTickPaint);
+        @Override
+        public void onFrameRendered(ModeState mode, int frame, long costNanos, boolean steady) {
+            onFrameCost(mode, costNanos, steady);
+            /* A redraw from the system may have blitted the frame already. */
+            if (frame > mShownFrame) {
+                invalidate();
             }
+        }
 
+        private void onFrameCost(ModeState mode, long costNanos, boolean steady) {
             /*
-             * These calculations reflect the rotation in degrees per unit of time, e.g.,
-             * 360 / 60 = 6 and 360 / 12 = 30.
-             */
-
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
-
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-
-            /*
-             * Save the canvas state before we can begin to rotate it.
+             * Only interactive frames drawn from cached layers tell what the quality tier costs;
+             * a layer rebuild is a one-off and would push the tier down for nothing.
              */
-            canvas.save();
-            canvas.rotate(minutesRotation, mCenterX, mCenterY);
-            Path path = new Path();
-            path.moveTo(mCenterX, mCenterY);
-            path.lineTo(mCenterX - 2, mCenterY);
-            path.lineTo(mCenterX - 2, (float)(mCenterY - sMinuteHandLength * 0.05));
-            path.lineTo(mCenterX - 4, (float)(mCenterY - sMinuteHandLength * 0.15));
-
-            path.lineTo(mCenterX - 1, mCenterX - sMinuteHandLength);
-            path.lineTo(mCenterX, mCenterX - sMinuteHandLength - 1);
-            path.lineTo(mCenterX + 1, mCenterX - sMinuteHandLength);
-
-            path.lineTo(mCenterX + 4, (float)(mCenterY - sMinuteHandLength * 0.15));
-            path.lineTo(mCenterX + 2, (float)(mCenterY - sMinuteHandLength * 0.05));
-            path.lineTo(mCenterX + 2, mCenterY);
-            path.close();
-            canvas.drawPath(path, mMinutePaint);
-            /* Restore the canvas' original orientation. */
-            canvas.restore();
-            canvas.drawCircle(mCenterX, mCenterY, CENTER_GAP_AND_CIRCLE_RADIUS, mCirclePaint);
-        }
-
-        public void drawTianyiLogo(Canvas canvas){
-            canvas.drawText("∞", mCenterX, mCenterY - 120, mTianyiPaint);
+            if (!mode.ambient && steady) {
+                int tier = mQualityGovernor.onFrameRendered(costNanos);
+                if (tier != mMode.quality) {
+                    mMode = mMode.withQuality(tier);
+                }
+            }
         }
 
-
         @Override
         public void onVisibilityChanged(boolean visible) {
             super.onVisibilityChanged(visible);
@@ -517,10 +367,12 @@ public class MyWatchFace extends CanvasWatchFaceService {
             if (visible) {
                 registerReceiver();
                 /* Update time zone in case it changed while we weren't visible. */
-                mCalendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                updateTimeZone();
+                requestRedraw();
             } else {
                 unregisterReceiver();
+                /* Nothing is drawn while hidden, so the cached layers can go. */
+                onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
@@ -544,6 +396,65 @@ public class MyWatchFace extends CanvasWatchFaceService {
             MyWatchFace.this.unregisterReceiver(mTimeZoneReceiver);
         }
 
+        void onTrimMemory(int level) {
+            if (mRenderThread != null) {
+                mRenderThread.trimMemory(level);
+            } else {
+                mRenderer.trimMemory(level);
+            }
+        }
+
+        private void updateTimeZone() {
+            mTimeSource.setTimeZone(TimeZone.getDefault());
+            if (mRenderThread != null) {
+                mRenderThread.setTimeZone(TimeZone.getDefault());
+            }
+        }
+
+        /**
+         * Asks for a new frame. In threaded mode the frame is rendered on the render thread with
+         * the current mode, and the surface is invalidated once it is done.
+         */
+        private void requestRedraw() {
+            mStats.count(FrameStats.COUNTER_INVALIDATIONS);
+            if (mRenderThread == null) {
+                invalidate();
+            } else {
+                mRequestedFrame = mRenderThread.requestFrame(mMode);
+                /*
+                 * The device may sleep again as soon as an ambient update returns, so it is kept
+                 * awake until the frame is on screen instead of blocking here for it.
+                 */
+                if (mMode.ambient) {
+                    mAmbientFrame = mRequestedFrame;
+                    mAmbientFrameWakeLock.acquire(AMBIENT_FRAME_TIMEOUT_MS);
+                }
+            }
+        }
+
+        /* The render thread only sees the mode through frame requests, so send one. */
+        private void handOverMode() {
+            if (mRenderThread != null) {
+                requestRedraw();
+            }
+        }
+
+        @Override
+        protected void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+            super.dump(prefix, fd, writer, args);
+            if (args != null && args.length >= 2 && "stats".equals(args[0])
+                    && "reset".equals(args[1])) {
+                mStats.reset();
+            }
+            if (mRenderThread != null) {
+                mRenderThread.dump(prefix, writer);
+            } else {
+                mRenderer.dump(prefix, writer);
+            }
+            mQualityGovernor.dump(prefix, writer);
+            mStats.dump(prefix, writer);
+        }
+
         /**
          * Starts/stops the {@link #mUpdateTimeHandler} timer based on the state of the watch face.
          */
@@ -556,21 +467,21 @@ public class MyWatchFace extends CanvasWatchFaceService {
 
         /**
          * Returns whether the {@link #mUpdateTimeHandler} timer should be running. The timer
-         * should only run in active mode.
+         * should only run in active mode, ambient mode is driven by {@link #onTimeTick()}.
          */
         private boolean shouldTimerBeRunning() {
-            return isVisible() && !mAmbient;
+            return isVisible() && !mMode.ambient;
         }
 
         /**
          * Handle updating the time periodically in interactive mode.
          */
         private void handleUpdateTimeMessage() {
-            invalidate();
+            mStats.count(FrameStats.COUNTER_WAKEUPS);
+            requestRedraw();
             if (shouldTimerBeRunning()) {
                 long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
+                long delayMs = mFrameScheduler.getDelayToNextFrame(timeMs);
                 mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
             }
         }
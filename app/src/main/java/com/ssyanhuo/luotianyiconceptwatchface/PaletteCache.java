@@ -0,0 +1,107 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.palette.graphics.Palette;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the color picked from a drawable by {@link Palette} in shared preferences, so it is
+ * only extracted once per installed APK. The entry is keyed by the resource id and the package
+ * version and install time, which change whenever the drawable can have changed.
+ */
+class PaletteCache {
+
+    private static final String TAG = "PaletteCache";
+
+    private static final String PREFS_NAME = "palette_cache";
+    private static final String KEY_SOURCE = "source_";
+    private static final String KEY_VIBRANT_COLOR = "vibrant_color_";
+
+    /* Palette scales its input to about this many pixels per side anyway. */
+    private static final int SAMPLE_SIZE = 112;
+
+    /**
+     * Receives the color on the main thread.
+     */
+    interface Callback {
+        void onVibrantColorLoaded(int color);
+    }
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    /* Only touched on the main thread. */
+    private int mGeneration;
+
+    PaletteCache(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Looks up the vibrant color of {@code resId}, extracting and storing it on a miss. Falls
+     * back to {@code defaultColor} when the image has no vibrant swatch.
+     */
+    void loadVibrantColor(final int resId, final int defaultColor, final Callback callback) {
+        final int generation = ++mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int color = getVibrantColor(resId, defaultColor);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            callback.onVibrantColorLoaded(color);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops pending requests and stops the worker thread.
+     */
+    void release() {
+        mGeneration++;
+        mExecutor.shutdown();
+    }
+
+    private int getVibrantColor(int resId, int defaultColor) {
+        SharedPreferences prefs = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String source = resId + "/" + AssetVersion.get(mContext);
+        if (source.equals(prefs.getString(KEY_SOURCE + resId, null))) {
+            return prefs.getInt(KEY_VIBRANT_COLOR + resId, defaultColor);
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        Bitmap sample = decodeSample(resId);
+        int color = Palette.from(sample).generate().getVibrantColor(defaultColor);
+        sample.recycle();
+        Log.d(TAG, "extracted palette in " + (SystemClock.elapsedRealtime() - start) + " ms");
+
+        prefs.edit()
+                .putString(KEY_SOURCE + resId, source)
+                .putInt(KEY_VIBRANT_COLOR + resId, color)
+                .apply();
+        return color;
+    }
+
+    private Bitmap decodeSample(int resId) {
+        BitmapFactory.Options bounds = BitmapDecoder.decodeBounds(mContext.getResources(), resId);
+        int width = Math.min(SAMPLE_SIZE, bounds.outWidth);
+        int height = Math.max(1, bounds.outHeight * width / bounds.outWidth);
+        return BitmapDecoder.decodeToSize(mContext.getResources(), resId, width, height,
+                Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,220 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Bitmap;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Derives the ambient variants of a bitmap by working on its pixels directly. The pixels are
+ * read into an {@code int[]} once, split into bands of rows that are processed in parallel on a
+ * fork/join pool, and written back in one go. The kernel only works on the array, so it can be
+ * tested and timed off-device through {@link #processPixels(int[], int, int)}.
+ */
+final class PixelProcessor {
+
+    /* Desaturated, with the alpha kept; the same as a ColorMatrix with saturation 0. */
+    static final int STYLE_GRAY = 0;
+    /* Gray on black, ordered-dithered to fully on or off pixels for low-bit screens. */
+    static final int STYLE_LOW_BIT = 1;
+    /* Like low-bit, with fewer pixels lit and no area lit solid. */
+    static final int STYLE_BURN_IN = 2;
+
+    /*
+     * Most pixels lit by a dithered background, in percent. Ambient screens are meant to stay
+     * mostly dark, so the luminance is scaled down until the image fits.
+     */
+    static final int LOW_BIT_LIT_PERCENT = 15;
+    static final int BURN_IN_LIT_PERCENT = 10;
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    /* Luma weights of ColorMatrix.setSaturation(0), in thousandths. */
+    private static final int WEIGHT_RED = 213;
+    private static final int WEIGHT_GREEN = 715;
+    private static final int WEIGHT_BLUE = 72;
+
+    /* Brightest gray allowed on burn-in screens, so no area has more than 6 of 16 pixels lit. */
+    private static final int BURN_IN_MAX_LUMINANCE = 96;
+
+    /* 4x4 Bayer matrix, scaled to thresholds in 0-255 below. */
+    private static final int[] BAYER_4X4 = {
+            0, 8, 2, 10,
+            12, 4, 14, 6,
+            3, 11, 1, 9,
+            15, 7, 13, 5
+    };
+    private static final int[] DITHER_THRESHOLDS = new int[BAYER_4X4.length];
+
+    static {
+        for (int i = 0; i < BAYER_4X4.length; i++) {
+            DITHER_THRESHOLDS[i] = (BAYER_4X4[i] * 2 + 1) * 255 / 32;
+        }
+    }
+
+    /* Luminance scale in 1/256ths that leaves an image unchanged. */
+    private static final int FULL_SCALE = 256;
+
+    /* Rows below which a band is processed directly instead of split further. */
+    private static final int MIN_BAND_ROWS = 32;
+
+    private static final ForkJoinPool sPool = new ForkJoinPool();
+
+    private PixelProcessor() {
+    }
+
+    /**
+     * Returns a new ARGB_8888 bitmap with {@code source} converted to {@code style}. Low-bit and
+     * burn-in results are opaque.
+     */
+    static Bitmap process(Bitmap source, int style) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] pixels = new int[width * height];
+        source.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        processPixels(pixels, width, style);
+
+        Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        result.setPixels(pixels, 0, width, 0, 0, width, height);
+        result.setDensity(source.getDensity());
+        return result;
+    }
+
+    /**
+     * Converts ARGB {@code pixels}, {@code width} to a row, to {@code style} in place.
+     */
+    static void processPixels(int[] pixels, int width, int style) {
+        int height = pixels.length / width;
+        sPool.invoke(new BandTask(pixels, width, 0, height, style, FULL_SCALE));
+        if (style == STYLE_GRAY) {
+            return;
+        }
+        int litPercent = style == STYLE_BURN_IN ? BURN_IN_LIT_PERCENT : LOW_BIT_LIT_PERCENT;
+        int scale = findScale(pixels, width, (long) pixels.length * litPercent / 100);
+        sPool.invoke(new BandTask(pixels, width, 0, height, -1, scale));
+    }
+
+    /**
+     * First pass: replaces each pixel by its gray value, or for the dithered styles by its
+     * luminance flattened onto black.
+     */
+    private static void toLuminance(int[] pixels, int width, int fromRow, int toRow, int style) {
+        for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+            int color = pixels[i];
+            int alpha = color >>> 24;
+            int luminance = (((color >> 16) & 0xFF) * WEIGHT_RED
+                    + ((color >> 8) & 0xFF) * WEIGHT_GREEN
+                    + (color & 0xFF) * WEIGHT_BLUE + 500) / 1000;
+
+            if (style == STYLE_GRAY) {
+                pixels[i] = (alpha << 24) | (luminance << 16) | (luminance << 8) | luminance;
+                continue;
+            }
+
+            /* Flatten onto black first, since blending would bring back gray levels. */
+            luminance = luminance * alpha / 255;
+            if (style == STYLE_BURN_IN) {
+                luminance = Math.min(luminance, BURN_IN_MAX_LUMINANCE);
+            }
+            pixels[i] = luminance;
+        }
+    }
+
+    /**
+     * Second pass for the dithered styles: scales the luminance left by {@link #toLuminance} by
+     * {@code scale} / 256 and turns it into fully on or off pixels.
+     */
+    private static void dither(int[] pixels, int width, int fromRow, int toRow, int scale) {
+        for (int y = fromRow; y < toRow; y++) {
+            int offset = y * width;
+            int ditherRow = (y & 3) << 2;
+            for (int x = 0; x < width; x++) {
+                int luminance = (pixels[offset + x] * scale) >> 8;
+                boolean lit = luminance > DITHER_THRESHOLDS[ditherRow | (x & 3)];
+                pixels[offset + x] = lit ? WHITE : BLACK;
+            }
+        }
+    }
+
+    /**
+     * Returns the largest luminance scale, in 1/256ths, at which dithering lights at most
+     * {@code maxLit} pixels. The count is exact: it comes from a luminance histogram per dither
+     * threshold, so the search does not touch the pixels again.
+     */
+    private static int findScale(int[] pixels, int width, long maxLit) {
+        int[][] histograms = new int[DITHER_THRESHOLDS.length][256];
+        for (int y = 0, offset = 0; offset < pixels.length; y++, offset += width) {
+            int ditherRow = (y & 3) << 2;
+            for (int x = 0; x < width; x++) {
+                histograms[ditherRow | (x & 3)][pixels[offset + x]]++;
+            }
+        }
+        if (countLit(histograms, FULL_SCALE) <= maxLit) {
+            return FULL_SCALE;
+        }
+        /* The lit count only grows with the scale, so bisect for the last one within budget. */
+        int low = 0;
+        int high = FULL_SCALE;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (countLit(histograms, middle) <= maxLit) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long countLit(int[][] histograms, int scale) {
+        long lit = 0;
+        for (int i = 0; i < histograms.length; i++) {
+            int threshold = DITHER_THRESHOLDS[i];
+            int[] histogram = histograms[i];
+            for (int luminance = 0; luminance < histogram.length; luminance++) {
+                if (((luminance * scale) >> 8) > threshold) {
+                    lit += histogram[luminance];
+                }
+            }
+        }
+        return lit;
+    }
+
+    private static class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] mPixels;
+        private final int mWidth;
+        private final int mFromRow;
+        private final int mToRow;
+        /* Style for the luminance pass, or -1 for the dither pass. */
+        private final int mStyle;
+        private final int mScale;
+
+        BandTask(int[] pixels, int width, int fromRow, int toRow, int style, int scale) {
+            mPixels = pixels;
+            mWidth = width;
+            mFromRow = fromRow;
+            mToRow = toRow;
+            mStyle = style;
+            mScale = scale;
+        }
+
+        @Override
+        protected void compute() {
+            if (mToRow - mFromRow <= MIN_BAND_ROWS) {
+                if (mStyle >= 0) {
+                    toLuminance(mPixels, mWidth, mFromRow, mToRow, mStyle);
+                } else {
+                    dither(mPixels, mWidth, mFromRow, mToRow, mScale);
+                }
+                return;
+            }
+            int middle = (mFromRow + mToRow) >>> 1;
+            invokeAll(new BandTask(mPixels, mWidth, mFromRow, middle, mStyle, mScale),
+                    new BandTask(mPixels, mWidth, middle, mToRow, mStyle, mScale));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders still previews of the face through the engine's pipeline on a background thread.
+ * The latest previews are kept until memory gets low, see {@link #trimMemory(int)}, so a
+ * screen that is opened again can show one at once and only render when the minute has changed
+ * since. Only the result of the most recent request is delivered. Assets come from a registry of
+ * its own, so the preview never keeps the engine's sizes alive or the other way round.
+ */
+class PreviewRenderer {
+
+    /* Previews kept across screens: the interactive and the ambient one at a single size. */
+    private static final int MAX_CACHED_PREVIEWS = 2;
+
+    private static final String DISK_CACHE_DIR = "preview-bitmaps";
+    private static final long DISK_CACHE_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static final LruCache<String, Preview> sPreviews =
+            new LruCache<>(MAX_CACHED_PREVIEWS);
+
+    /**
+     * Receives previews on the main thread.
+     */
+    interface Callback {
+        void onPreviewRendered(Bitmap preview);
+    }
+
+    /* Preview bitmaps may be on screen, so they are never recycled or drawn over. */
+    private static class Preview {
+        final Bitmap bitmap;
+        /* Minute of the 12 hour dial the preview shows. */
+        final int dialMinute;
+
+        Preview(Bitmap bitmap, int dialMinute) {
+            this.bitmap = bitmap;
+            this.dialMinute = dialMinute;
+        }
+    }
+
+    private final Context mContext;
+    private final AssetRegistry mRegistry =
+            new AssetRegistry(DISK_CACHE_DIR, DISK_CACHE_MAX_BYTES);
+    private final AssetLoader mLoader;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    /* Only touched on the main thread. */
+    private int mGeneration;
+
+    /* Only touched on the worker thread, which keeps the renderer's layers between minutes. */
+    private final TimeSource mTimeSource =
+            new TimeSource(TimeSource.SYSTEM_CLOCK, TimeZone.getDefault());
+    private final ConceptWatchFaceRenderer mRenderer =
+            new ConceptWatchFaceRenderer(new FrameStats());
+    private int mRendererWidth;
+    private int mRendererHeight;
+    private int mRendererAmbientStyle = -1;
+    private int mRendererHighlightColor;
+    private boolean mRendererHasColors;
+
+    PreviewRenderer(Context context) {
+        mContext = context.getApplicationContext();
+        mLoader = new AssetLoader(mContext, mRegistry);
+    }
+
+    /**
+     * Drops the cached previews once memory is getting low or the process is in the background,
+     * for a {@link ComponentCallbacks2} trim level. Previews already on screen stay valid.
+     */
+    static void trimMemory(int level) {
+        if (level != ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                && level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            sPreviews.evictAll();
+        }
+    }
+
+    /**
+     * Returns the last preview rendered for these parameters, which may show an earlier minute,
+     * or null if there is none.
+     */
+    static Bitmap getCachedPreview(ModeState mode, int width, int height, int highlightColor) {
+        Preview preview = sPreviews.get(getKey(mode, width, height, highlightColor));
+        return preview != null ? preview.bitmap : null;
+    }
+
+    /**
+     * Renders a {@code width} x {@code height} preview of the current minute, unless the cached
+     * one already shows it. Any earlier request that has not been delivered yet is dropped.
+     */
+    void render(final ModeState mode, final int width, final int height,
+                final int highlightColor, final Callback callback) {
+        final int generation = ++mGeneration;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap preview = renderPreview(mode, width, height, highlightColor);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration) {
+                            callback.onPreviewRendered(preview);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Picks up a new default time zone for the next preview.
+     */
+    void onTimeZoneChanged() {
+        final TimeZone timeZone = TimeZone.getDefault();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mTimeSource.setTimeZone(timeZone);
+            }
+        });
+    }
+
+    /**
+     * Drops pending requests and stops the worker thread. Cached previews are kept.
+     */
+    void release() {
+        mGeneration++;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.release();
+            }
+        });
+        mExecutor.shutdown();
+        mLoader.release();
+    }
+
+    private Bitmap renderPreview(ModeState mode, int width, int height, int highlightColor) {
+        WatchTime time = mTimeSource.update();
+        int dialMinute = time.hour * 60 + time.minute;
+        String key = getKey(mode, width, height, highlightColor);
+        Preview cached = sPreviews.get(key);
+        if (cached != null && cached.dialMinute == dialMinute) {
+            return cached.bitmap;
+        }
+
+        int ambientStyle = mode.getAmbientStyle();
+        if (width != mRendererWidth || height != mRendererHeight) {
+            mRendererWidth = width;
+            mRendererHeight = height;
+            mRendererAmbientStyle = -1;
+            mRenderer.setSurfaceSize(width, height);
+        }
+        if (ambientStyle != mRendererAmbientStyle) {
+            mRendererAmbientStyle = ambientStyle;
+            mRenderer.setAssets(mLoader.loadAssets(width, height, ambientStyle));
+        }
+        if (!mRendererHasColors || highlightColor != mRendererHighlightColor) {
+            mRendererHasColors = true;
+            mRendererHighlightColor = highlightColor;
+            mRenderer.setWatchHandColors(Color.WHITE, highlightColor, Color.BLACK);
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mRenderer.render(new Canvas(bitmap), time, mode);
+        sPreviews.put(key, new Preview(bitmap, dialMinute));
+        return bitmap;
+    }
+
+    private static String getKey(ModeState mode, int width, int height, int highlightColor) {
+        return mode.packedKey() + "/" + width + "x" + height + "/"
+                + Integer.toHexString(highlightColor);
+    }
+}
@@ -0,0 +1,183 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks how much interactive mode can afford to draw. The tier steps down when rendered frames
+ * get slow and back up when they are fast again, and is capped while the device saves power.
+ * Cost decisions are only taken over a full window of frames measured at the current tier, and
+ * the step up threshold is far below the step down one, so the tier does not flap. A tier that
+ * was too slow is only tried again after a hold-off that doubles every time it is still too slow,
+ * so a device that can only afford the lower tier does not keep paying for the higher one.
+ */
+class QualityGovernor {
+
+    /* Shadows and anti-aliasing. */
+    static final int TIER_FULL = 0;
+    /* Anti-aliasing without shadows. */
+    static final int TIER_AA_ONLY = 1;
+    /* Neither. */
+    static final int TIER_FLAT = 2;
+
+    private static final String[] TIER_NAMES = {"full", "aa only", "flat"};
+
+    /*
+     * Interactive frames come about once a minute, so a longer window would take the better
+     * part of an hour to react.
+     */
+    private static final int WINDOW = 4;
+    private static final long STEP_DOWN_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    private static final long STEP_UP_NANOS = TimeUnit.MILLISECONDS.toNanos(6);
+
+    /* Frames to stay below a tier that was too slow, the first time and at most. */
+    private static final int MIN_HOLD_OFF = 2 * WINDOW;
+    private static final int MAX_HOLD_OFF = 64 * WINDOW;
+
+    /* Battery levels at which to go flat and to come back from it. */
+    private static final int LOW_BATTERY_ENTER = 15;
+    private static final int LOW_BATTERY_EXIT = 20;
+
+    /**
+     * Source of the power state, replaceable for tests.
+     */
+    interface PowerState {
+        boolean isPowerSaveMode();
+
+        /**
+         * Returns the battery level in percent, or a negative value if unknown.
+         */
+        int getBatteryLevel();
+    }
+
+    /**
+     * Returns the power state of the device.
+     */
+    static PowerState getSystemPowerState(Context context) {
+        final PowerManager powerManager =
+                (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        final BatteryManager batteryManager =
+                (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        return new PowerState() {
+            @Override
+            public boolean isPowerSaveMode() {
+                return powerManager != null && powerManager.isPowerSaveMode();
+            }
+
+            @Override
+            public int getBatteryLevel() {
+                if (batteryManager == null) {
+                    return -1;
+                }
+                return batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+            }
+        };
+    }
+
+    private final PowerState mPowerState;
+    private final long[] mCosts = new long[WINDOW];
+    private int mCostCount;
+    private long mCostSum;
+    private int mCostTier = TIER_FULL;
+    /* Last window average measured at each tier, or 0 if never measured. */
+    private final long[] mTierCosts = new long[TIER_NAMES.length];
+    /* Frames to stay below each tier once it was too slow, or 0 if it was not. */
+    private final int[] mHoldOffs = new int[TIER_NAMES.length];
+    private boolean mLowBattery;
+    private boolean mPowerSave;
+    private int mTier = TIER_FULL;
+    private int mTierChanges;
+
+    QualityGovernor(PowerState powerState) {
+        mPowerState = powerState;
+    }
+
+    int getTier() {
+        return mTier;
+    }
+
+    /**
+     * Records the cost of a frame that was rendered at the current tier and returns the tier to
+     * render the next ones at. Only pass frames drawn from cached layers, so the cost is what
+     * every minute pays at this tier.
+     */
+    int onFrameRendered(long costNanos) {
+        /* Frames held down by the power state say nothing about the cost tier. */
+        if (mTier == mCostTier) {
+            mCostSum += costNanos - mCosts[mCostCount % WINDOW];
+            mCosts[mCostCount % WINDOW] = costNanos;
+            mCostCount++;
+
+            if (mCostCount >= WINDOW) {
+                long average = mCostSum / WINDOW;
+                mTierCosts[mCostTier] = average;
+                if (average > STEP_DOWN_NANOS) {
+                    int holdOff = mHoldOffs[mCostTier];
+                    mHoldOffs[mCostTier] = holdOff == 0
+                            ? MIN_HOLD_OFF : Math.min(holdOff * 2, MAX_HOLD_OFF);
+                    if (mCostTier < TIER_FLAT) {
+                        setCostTier(mCostTier + 1);
+                    }
+                } else {
+                    mHoldOffs[mCostTier] = 0;
+                    if (average < STEP_UP_NANOS && mCostTier > TIER_FULL
+                            && canStepUpTo(mCostTier - 1)) {
+                        setCostTier(mCostTier - 1);
+                    }
+                }
+            }
+        }
+
+        mPowerSave = mPowerState.isPowerSaveMode();
+        int level = mPowerState.getBatteryLevel();
+        if (level >= 0) {
+            mLowBattery = mLowBattery ? level < LOW_BATTERY_EXIT : level <= LOW_BATTERY_ENTER;
+        }
+
+        int tier = mCostTier;
+        if (mPowerSave) {
+            tier = Math.max(tier, TIER_AA_ONLY);
+        }
+        if (mLowBattery) {
+            tier = TIER_FLAT;
+        }
+        if (tier != mTier) {
+            mTier = tier;
+            mTierChanges++;
+        }
+        return mTier;
+    }
+
+    void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("Quality: tier=" + TIER_NAMES[mTier] + " cost tier="
+                + TIER_NAMES[mCostTier] + " avg="
+                + (mCostCount > 0 ? mCostSum / Math.min(mCostCount, WINDOW) / 1000 : 0) + "us"
+                + " full=" + mTierCosts[TIER_FULL] / 1000 + "us"
+                + " aaOnly=" + mTierCosts[TIER_AA_ONLY] / 1000 + "us"
+                + " powerSave=" + mPowerSave + " lowBattery=" + mLowBattery
+                + " changes=" + mTierChanges);
+    }
+
+    /*
+     * A tier whose last measurement was fine can be tried right away; one that was too slow only
+     * after its hold-off has been spent at the current tier.
+     */
+    private boolean canStepUpTo(int tier) {
+        return mTierCosts[tier] <= STEP_DOWN_NANOS || mCostCount >= mHoldOffs[tier];
+    }
+
+    /* Starts a new window, so the next decision only sees frames from the new tier. */
+    private void setCostTier(int tier) {
+        mCostTier = tier;
+        mCostCount = 0;
+        mCostSum = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            mCosts[i] = 0;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders frames on a dedicated thread, so a slow frame does not hold up taps and broadcasts on
+ * the engine's main looper. The renderer's frame cache is double buffered: frames are composed
+ * into its back buffer on the render thread, and the surface blits the cached frame, so there is
+ * no copy in between and no buffer besides the two. Once handed over, the renderer is only used
+ * on the render thread, apart from that blit; the engine passes its state along as immutable
+ * {@link ModeState} snapshots with each frame request.
+ */
+class RenderThread {
+
+    /* How long dump waits for the render thread to describe itself. */
+    private static final long DUMP_TIMEOUT_MS = 500;
+
+    /**
+     * Hears about finished frames on the main thread.
+     */
+    interface Callback {
+        /**
+         * Called once frame number {@code frame} can be drawn. {@code steady} is as
+         * returned by {@link ConceptWatchFaceRenderer#wasLastFrameSteady()}.
+         */
+        void onFrameRendered(ModeState mode, int frame, long costNanos, boolean steady);
+    }
+
+    /* A pending frame; newer requests replace it until the render thread picks it up. */
+    private static class FrameRequest {
+        final ModeState mode;
+        final int number;
+        final long requestNanos;
+
+        FrameRequest(ModeState mode, int number, long requestNanos) {
+            this.mode = mode;
+            this.number = number;
+            this.requestNanos = requestNanos;
+        }
+    }
+
+    private final ConceptWatchFaceRenderer mRenderer;
+    private final FrameStats mStats;
+    private final Callback mCallback;
+    private final HandlerThread mThread =
+            new HandlerThread("WatchFaceRender", Process.THREAD_PRIORITY_DISPLAY);
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicReference<FrameRequest> mPendingFrame = new AtomicReference<>();
+    /* Only touched on the main thread. */
+    private int mRequestedFrames;
+    private boolean mReleased;
+
+    /* Only touched on the render thread. */
+    private final TimeSource mTimeSource =
+            new TimeSource(TimeSource.SYSTEM_CLOCK, TimeZone.getDefault());
+    private boolean mHasSurface;
+
+    /*
+     * Number of the request the cached frame was composed for, 0 before the first frame. It is
+     * set after the frame is swapped in, so it may lag behind the frame on screen, never lead.
+     */
+    private volatile int mComposedFrame;
+
+    private final Runnable mRenderRunnable = new Runnable() {
+        @Override
+        public void run() {
+            FrameRequest request = mPendingFrame.getAndSet(null);
+            if (request != null) {
+                renderFrame(request);
+            }
+        }
+    };
+
+    RenderThread(ConceptWatchFaceRenderer renderer, FrameStats stats, Callback callback) {
+        mRenderer = renderer;
+        mRenderer.setDoubleBuffered(true);
+        mStats = stats;
+        mCallback = callback;
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    /**
+     * Asks for a frame in {@code mode} and returns its number. Requests that come in before the
+     * render thread gets to them are merged into the latest one.
+     */
+    int requestFrame(ModeState mode) {
+        int number = ++mRequestedFrames;
+        FrameRequest request = new FrameRequest(mode, number, System.nanoTime());
+        if (mPendingFrame.getAndSet(request) == null) {
+            mHandler.post(mRenderRunnable);
+        }
+        return number;
+    }
+
+    /**
+     * Blits the last composed frame and returns the number of the frame request it was composed
+     * for, or 0 if nothing has been composed yet, in which case the canvas is cleared.
+     */
+    int drawFrame(Canvas canvas) {
+        int frame = mComposedFrame;
+        mRenderer.drawComposedFrame(canvas);
+        return frame;
+    }
+
+    void setSurfaceSize(final int width, final int height) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mComposedFrame = 0;
+                mRenderer.setSurfaceSize(width, height);
+                mHasSurface = true;
+            }
+        });
+    }
+
+    /**
+     * Hands the assets to the renderer, which owns them from then on. If the thread is already
+     * stopping they are released right away.
+     */
+    void setAssets(final AssetLoader.Assets assets) {
+        boolean posted = mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setAssets(assets);
+            }
+        });
+        if (!posted) {
+            assets.release();
+        }
+    }
+
+    void setWatchHandColors(final int color, final int highlightColor, final int shadowColor) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setWatchHandColors(color, highlightColor, shadowColor);
+            }
+        });
+    }
+
+    void setTimeZone(final TimeZone timeZone) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mTimeSource.setTimeZone(timeZone);
+            }
+        });
+    }
+
+    void trimMemory(final int level) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.trimMemory(level);
+            }
+        });
+    }
+
+    /**
+     * Releases the renderer, with the assets and buffers it holds, on the render thread once it
+     * is done with the current frame, then stops it. Frames that finish afterwards are not
+     * reported.
+     */
+    void release() {
+        mReleased = true;
+        mPendingFrame.set(null);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.release();
+            }
+        });
+        mThread.quitSafely();
+    }
+
+    /**
+     * Prints the renderer state, read on the render thread so it is consistent.
+     */
+    void dump(final String prefix, PrintWriter writer) {
+        final int requested = mRequestedFrames;
+        final StringWriter state = new StringWriter();
+        final CountDownLatch done = new CountDownLatch(1);
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                PrintWriter stateWriter = new PrintWriter(state);
+                stateWriter.print(prefix);
+                stateWriter.println("Render thread: requested=" + requested
+                        + " pending=" + (mPendingFrame.get() != null));
+                mRenderer.dump(prefix, stateWriter);
+                stateWriter.flush();
+                done.countDown();
+            }
+        });
+        try {
+            if (!done.await(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                writer.print(prefix);
+                writer.println("Render thread: busy");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        writer.print(state);
+    }
+
+    private void renderFrame(final FrameRequest request) {
+        if (!mHasSurface) {
+            return;
+        }
+        long start = System.nanoTime();
+        mStats.recordStage(FrameStats.STAGE_RENDER_QUEUE, start - request.requestNanos);
+        mRenderer.composeFrame(mTimeSource.update(), request.mode);
+        final long costNanos = System.nanoTime() - start;
+        mStats.recordStage(FrameStats.STAGE_FRAME, costNanos);
+        final boolean steady = mRenderer.wasLastFrameSteady();
+        mComposedFrame = request.number;
+
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mReleased) {
+                    mCallback.onFrameRendered(request.mode, request.number, costNanos, steady);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+/**
+ * Recognizes "N taps within T ms" on the thread that delivers the taps. The last N tap times are
+ * kept in a ring buffer, so no timer or extra thread is needed to expire old taps. Taps are timed
+ * by their event time, so a busy thread does not skew the gesture.
+ */
+class TapGestureDetector {
+
+    private final long[] mTapTimes;
+    private final long mWindowMs;
+    private int mNext;
+    private int mCount;
+
+    TapGestureDetector(int tapCount, long windowMs) {
+        mTapTimes = new long[tapCount];
+        mWindowMs = windowMs;
+    }
+
+    /**
+     * Records a tap at {@code eventTimeMs}, in the {@link android.os.SystemClock#uptimeMillis()}
+     * time base, and returns whether it completes the gesture. The taps are consumed when it
+     * does, so the next gesture starts from scratch.
+     */
+    boolean onTap(long eventTimeMs) {
+        mTapTimes[mNext] = eventTimeMs;
+        mNext = (mNext + 1) % mTapTimes.length;
+        mCount = Math.min(mCount + 1, mTapTimes.length);
+
+        /* With a full buffer, mNext points at the oldest of the last N taps. */
+        if (mCount == mTapTimes.length && eventTimeMs - mTapTimes[mNext] <= mWindowMs) {
+            reset();
+            return true;
+        }
+        return false;
+    }
+
+    void reset() {
+        mCount = 0;
+    }
+}
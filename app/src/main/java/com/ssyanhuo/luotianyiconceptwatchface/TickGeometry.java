@@ -0,0 +1,56 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+/**
+ * End points of the dial ticks as {@code drawLines} buffers of (startX, startY, stopX, stopY)
+ * quadruples. They only depend on the surface size, so they are computed once per size instead
+ * of on every frame.
+ */
+final class TickGeometry {
+
+    /*
+     * Ticks that are drawn: the 12 o'clock hour tick and the minute ticks at 59, 0 and 1 are
+     * left out to make room for the logo.
+     */
+    static final int HOUR_TICK_COUNT = 11;
+    static final int MINUTE_TICK_COUNT = 46;
+
+    /* Distance of the tick ends from the edge of the dial. */
+    private static final float HOUR_TICK_INSET = 22;
+    private static final float MINUTE_TICK_INSET = 16;
+    private static final float OUTER_TICK_INSET = 4;
+
+    private TickGeometry() {
+    }
+
+    /**
+     * Fills {@code hourLines} and {@code minuteLines}, sized for {@link #HOUR_TICK_COUNT} and
+     * {@link #MINUTE_TICK_COUNT} lines, for a dial of radius {@code centerX}.
+     */
+    static void compute(float centerX, float centerY, float[] hourLines, float[] minuteLines) {
+        float outerTickRadius = centerX - OUTER_TICK_INSET;
+        int i = 0;
+        for (int tickIndex = 1; tickIndex < 12; tickIndex++) {
+            i = putTick(hourLines, i, centerX, centerY, tickIndex * Math.PI * 2 / 12,
+                    centerX - HOUR_TICK_INSET, outerTickRadius);
+        }
+        i = 0;
+        for (int tickIndex = 2; tickIndex < 59; tickIndex++) {
+            if (tickIndex % 5 == 0) {
+                continue;
+            }
+            i = putTick(minuteLines, i, centerX, centerY, tickIndex * Math.PI * 2 / 60,
+                    centerX - MINUTE_TICK_INSET, outerTickRadius);
+        }
+    }
+
+    private static int putTick(float[] lines, int i, float centerX, float centerY,
+                               double rotation, float innerRadius, float outerRadius) {
+        float sin = (float) Math.sin((float) rotation);
+        float cos = (float) Math.cos((float) rotation);
+        lines[i++] = centerX + sin * innerRadius;
+        lines[i++] = centerY - cos * innerRadius;
+        lines[i++] = centerX + sin * outerRadius;
+        lines[i++] = centerY - cos * outerRadius;
+        return i;
+    }
+}
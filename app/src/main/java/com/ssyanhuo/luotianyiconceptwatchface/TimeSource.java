@@ -0,0 +1,74 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the wall clock into hours and minutes without a {@link java.util.Calendar}. The zone
+ * offset is looked up once and reused until the next quarter hour: time zone offsets, and so DST
+ * transitions, all fall on quarter hour boundaries, so the offset cannot change in between.
+ */
+class TimeSource {
+
+    /**
+     * Source of wall clock time, replaceable to render a fixed time.
+     */
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final long OFFSET_PERIOD_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final int MINUTES_PER_HALF_DAY = 12 * 60;
+
+    private final Clock mClock;
+    private final WatchTime mTime = new WatchTime();
+    private TimeZone mTimeZone;
+    private int mOffsetMs;
+    /* The cached offset holds for wall clock times in [mOffsetValidFrom, mOffsetValidUntil). */
+    private long mOffsetValidFrom;
+    private long mOffsetValidUntil;
+
+    TimeSource(Clock clock, TimeZone timeZone) {
+        mClock = clock;
+        setTimeZone(timeZone);
+    }
+
+    void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        mOffsetValidFrom = Long.MAX_VALUE;
+        mOffsetValidUntil = Long.MIN_VALUE;
+    }
+
+    /**
+     * Reads the clock and returns the current time. The returned instance is reused by the next
+     * call.
+     */
+    WatchTime update() {
+        long now = mClock.currentTimeMillis();
+        if (now < mOffsetValidFrom || now >= mOffsetValidUntil) {
+            mOffsetMs = mTimeZone.getOffset(now);
+            mOffsetValidFrom = floorDiv(now, OFFSET_PERIOD_MS) * OFFSET_PERIOD_MS;
+            mOffsetValidUntil = mOffsetValidFrom + OFFSET_PERIOD_MS;
+        }
+
+        long localMinutes = floorDiv(now + mOffsetMs, MINUTE_MS);
+        int minuteOfHalfDay = (int) (localMinutes - floorDiv(localMinutes, MINUTES_PER_HALF_DAY)
+                * MINUTES_PER_HALF_DAY);
+        mTime.set(now, minuteOfHalfDay / 60, minuteOfHalfDay % 60);
+        return mTime;
+    }
+
+    /* Math.floorDiv needs API 24. */
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+}
@@ -0,0 +1,26 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.graphics.Canvas;
+
+/**
+ * Draws the watch face onto any canvas, independent of the service that hosts it, so the
+ * pipeline can also be driven by previews and measurements.
+ */
+interface WatchFaceRenderer {
+
+    /**
+     * Updates the geometry for a {@code width} x {@code height} surface.
+     */
+    void setSurfaceSize(int width, int height);
+
+    /**
+     * Draws the face for {@code time} in the given {@code mode}.
+     */
+    void render(Canvas canvas, WatchTime time, ModeState mode);
+
+    /**
+     * Releases cached bitmaps. The renderer can be used again after another
+     * {@link #setSurfaceSize(int, int)}.
+     */
+    void release();
+}
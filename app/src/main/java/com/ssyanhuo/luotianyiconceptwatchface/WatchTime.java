@@ -0,0 +1,27 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+/**
+ * The local time one frame is drawn for. {@link TimeSource} fills a single instance in place,
+ * and every draw stage reads the same values, so a frame can never mix two different minutes.
+ */
+final class WatchTime {
+
+    /* Wall clock time the fields below were computed from. */
+    long millis;
+    /* Hour on the 12 hour dial, 0-11. */
+    int hour;
+    int minute;
+
+    /**
+     * Returns the hour as printed on the face, 1-12.
+     */
+    int getDisplayHour() {
+        return hour == 0 ? 12 : hour;
+    }
+
+    void set(long millis, int hour, int minute) {
+        this.millis = millis;
+        this.hour = hour;
+        this.minute = minute;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class AlignedFrameSchedulerTest {
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final FrameScheduler mScheduler = new AlignedFrameScheduler(MINUTE_MS);
+
+    @Test
+    public void waitsUntilNextMinute() {
+        assertEquals(MINUTE_MS - 1500, mScheduler.getDelayToNextFrame(10 * MINUTE_MS + 1500));
+    }
+
+    @Test
+    public void waitsFullPeriodOnBoundary() {
+        assertEquals(MINUTE_MS, mScheduler.getDelayToNextFrame(10 * MINUTE_MS));
+    }
+
+    @Test
+    public void wakesOncePerMinute() {
+        /* Following the delays for an hour takes exactly one wakeup per minute. */
+        long now = 1234;
+        int wakeups = 0;
+        while (now < TimeUnit.HOURS.toMillis(1)) {
+            now += mScheduler.getDelayToNextFrame(now);
+            assertEquals(0, now % MINUTE_MS);
+            wakeups++;
+        }
+        assertEquals(60, wakeups);
+    }
+}
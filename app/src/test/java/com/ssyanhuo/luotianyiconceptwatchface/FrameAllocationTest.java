@@ -0,0 +1,90 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails if the per-frame bookkeeping around the draw calls starts allocating: reading the time,
+ * recording stats, the quality governor and tap handling. The canvas calls themselves need a
+ * device, but everything here runs on every frame for as long as the face is shown.
+ */
+public class FrameAllocationTest {
+
+    private static final int FRAMES = 20000;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private long mNowMs;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void frameBookkeepingDoesNotAllocate() {
+        TimeSource timeSource = new TimeSource(new TimeSource.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return mNowMs;
+            }
+        }, TimeZone.getTimeZone("America/New_York"));
+        FrameStats stats = new FrameStats();
+        QualityGovernor governor = new QualityGovernor(new QualityGovernor.PowerState() {
+            @Override
+            public boolean isPowerSaveMode() {
+                return false;
+            }
+
+            @Override
+            public int getBatteryLevel() {
+                return 80;
+            }
+        });
+        TapGestureDetector taps = new TapGestureDetector(12, 3000);
+
+        FrameStats.setEnabled(true);
+        try {
+            /* Warm up, so class loading and JIT compilation are not counted. */
+            runFrames(timeSource, stats, governor, taps);
+            long before = getAllocatedBytes();
+            runFrames(timeSource, stats, governor, taps);
+            long allocated = getAllocatedBytes() - before;
+            /*
+             * The JVM itself allocates a few hundred bytes on the thread now and then. A single
+             * object per frame would be at least 16 bytes each time.
+             */
+            assertTrue("bytes allocated over " + FRAMES + " frames: " + allocated,
+                    allocated < FRAMES);
+        } finally {
+            FrameStats.setEnabled(false);
+        }
+    }
+
+    private void runFrames(TimeSource timeSource, FrameStats stats, QualityGovernor governor,
+                           TapGestureDetector taps) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            mNowMs += 60000;
+            long start = stats.startStage();
+            stats.count(FrameStats.COUNTER_FRAMES);
+            WatchTime time = timeSource.update();
+            stats.endStage(FrameStats.STAGE_FRAME, start);
+            stats.recordStage(FrameStats.STAGE_BLIT, time.minute * 1000L);
+            governor.onFrameRendered(time.minute * 100000L);
+            taps.onTap(mNowMs);
+        }
+    }
+
+    private long getAllocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,88 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrameStatsTest {
+
+    @Test
+    public void reportsPercentilesAsBucketUpperBounds() {
+        FrameStats.Histogram histogram = new FrameStats.Histogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+        /* 100us falls in [64, 128), 5000us in [4096, 8192). */
+        assertEquals(128, histogram.getPercentile(50));
+        assertEquals(128, histogram.getPercentile(90));
+        assertEquals(5000, histogram.getPercentile(95));
+        assertEquals(5000, histogram.getMax());
+        assertEquals(100, histogram.getCount());
+    }
+
+    @Test
+    public void capsPercentilesAtMaximum() {
+        FrameStats.Histogram histogram = new FrameStats.Histogram();
+        histogram.record(70);
+        assertEquals(70, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void putsHugeDurationsInLastBucket() {
+        FrameStats.Histogram histogram = new FrameStats.Histogram();
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(Long.MAX_VALUE / 2, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void resetClearsHistogram() {
+        FrameStats.Histogram histogram = new FrameStats.Histogram();
+        histogram.record(10);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void recordsStagesOnlyWhileEnabled() {
+        FrameStats stats = new FrameStats();
+        FrameStats.setEnabled(false);
+        stats.recordStage(FrameStats.STAGE_FRAME, TimeUnit.MILLISECONDS.toNanos(3));
+        assertFalse(dump(stats).contains("frame: n="));
+
+        FrameStats.setEnabled(true);
+        try {
+            stats.recordStage(FrameStats.STAGE_FRAME, TimeUnit.MILLISECONDS.toNanos(3));
+            assertTrue(dump(stats).contains("frame: n=1 p50<=3000us p95<=3000us max=3000us"));
+        } finally {
+            FrameStats.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void countsEventsWhileDisabled() {
+        FrameStats stats = new FrameStats();
+        stats.count(FrameStats.COUNTER_WAKEUPS);
+        stats.count(FrameStats.COUNTER_WAKEUPS);
+        assertTrue(dump(stats).contains("scheduler wakeups: 2"));
+        stats.reset();
+        assertTrue(dump(stats).contains("scheduler wakeups: 0"));
+    }
+
+    private static String dump(FrameStats stats) {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        stats.dump("", writer);
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ModeStateTest {
+
+    private static final int[] TIERS = {
+            QualityGovernor.TIER_FULL, QualityGovernor.TIER_AA_ONLY, QualityGovernor.TIER_FLAT
+    };
+
+    @Test
+    public void packedKeysAreUniqueAndFitKeyBits() {
+        Map<Integer, ModeState> keys = new HashMap<>();
+        for (int flags = 0; flags < 16; flags++) {
+            for (int tier : TIERS) {
+                ModeState mode = new ModeState((flags & 8) != 0, (flags & 4) != 0,
+                        (flags & 2) != 0, (flags & 1) != 0, tier);
+                int key = mode.packedKey();
+                assertEquals(0, key >>> ModeState.KEY_BITS);
+                ModeState previous = keys.put(key, mode);
+                assertTrue("key " + key + " is used twice", previous == null);
+            }
+        }
+        assertEquals(48, keys.size());
+    }
+
+    @Test
+    public void equalStatesHaveEqualKeys() {
+        ModeState a = ModeState.INTERACTIVE.withAmbient(true).withProperties(true, false);
+        ModeState b = ModeState.INTERACTIVE.withProperties(true, false).withAmbient(true);
+        assertEquals(a, b);
+        assertEquals(a.packedKey(), b.packedKey());
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+
+    @Test
+    public void picksAmbientStyleByScreenProperties() {
+        assertEquals(PixelProcessor.STYLE_GRAY, ModeState.INTERACTIVE.getAmbientStyle());
+        assertEquals(PixelProcessor.STYLE_LOW_BIT,
+                ModeState.INTERACTIVE.withProperties(true, false).getAmbientStyle());
+        assertEquals(PixelProcessor.STYLE_BURN_IN,
+                ModeState.INTERACTIVE.withProperties(true, true).getAmbientStyle());
+    }
+}
@@ -0,0 +1,158 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class PixelProcessorTest {
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    /* Surface size of a large round watch. */
+    private static final int SIZE = 454;
+    /* One frame at 60 fps. */
+    private static final long FRAME_NANOS = 16000000;
+
+    @Test
+    public void grayMatchesColorMatrixWithSaturationZero() {
+        int[] pixels = randomPixels(64, 64, new Random(1));
+        int[] source = pixels.clone();
+        PixelProcessor.processPixels(pixels, 64, PixelProcessor.STYLE_GRAY);
+
+        for (int i = 0; i < source.length; i++) {
+            int color = source[i];
+            double expected = 0.213 * ((color >> 16) & 0xFF) + 0.715 * ((color >> 8) & 0xFF)
+                    + 0.072 * (color & 0xFF);
+            int gray = pixels[i];
+            assertEquals(color >>> 24, gray >>> 24);
+            assertEquals((gray >> 16) & 0xFF, gray & 0xFF);
+            assertEquals((gray >> 8) & 0xFF, gray & 0xFF);
+            assertEquals("pixel " + i, expected, gray & 0xFF, 1.0);
+        }
+    }
+
+    @Test
+    public void dithersDarkGrayToGoldenPattern() {
+        /* Luminance 20 only passes the lowest threshold, so one pixel in each 4x4 cell is lit. */
+        int[] pixels = new int[8 * 8];
+        Arrays.fill(pixels, 0xFF141414);
+        PixelProcessor.processPixels(pixels, 8, PixelProcessor.STYLE_LOW_BIT);
+
+        int[] expected = new int[8 * 8];
+        Arrays.fill(expected, BLACK);
+        expected[0] = WHITE;
+        expected[4] = WHITE;
+        expected[4 * 8] = WHITE;
+        expected[4 * 8 + 4] = WHITE;
+        assertArrayEquals(expected, pixels);
+    }
+
+    @Test
+    public void flattensTransparentPixelsToBlack() {
+        int[] pixels = new int[16 * 16];
+        Arrays.fill(pixels, 0x00FFFFFF);
+        PixelProcessor.processPixels(pixels, 16, PixelProcessor.STYLE_LOW_BIT);
+        for (int pixel : pixels) {
+            assertEquals(BLACK, pixel);
+        }
+    }
+
+    @Test
+    public void lowBitStaysWithinLitBudget() {
+        assertWithinBudget(PixelProcessor.STYLE_LOW_BIT, PixelProcessor.LOW_BIT_LIT_PERCENT);
+    }
+
+    @Test
+    public void burnInStaysWithinLitBudget() {
+        assertWithinBudget(PixelProcessor.STYLE_BURN_IN, PixelProcessor.BURN_IN_LIT_PERCENT);
+    }
+
+    @Test
+    public void parallelBandsGiveSameResult() {
+        int[] source = randomPixels(SIZE, SIZE, new Random(3));
+        int[] pixels = new int[source.length];
+        for (int style = PixelProcessor.STYLE_GRAY; style <= PixelProcessor.STYLE_BURN_IN;
+                style++) {
+            int[] first = null;
+            for (int run = 0; run < 5; run++) {
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                PixelProcessor.processPixels(pixels, SIZE, style);
+                if (first == null) {
+                    first = pixels.clone();
+                } else {
+                    /* Bands run in parallel, so check the result does not depend on timing. */
+                    assertArrayEquals("style " + style, first, pixels);
+                }
+            }
+        }
+    }
+
+    /**
+     * Only runs with -Pbenchmark, like {@link RenderBenchmark}. Fails if a style takes longer
+     * than a frame on a full-size surface.
+     */
+    @Test
+    public void benchmarkKernel() {
+        assumeTrue("run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+        int[] source = randomPixels(SIZE, SIZE, new Random(3));
+        int[] pixels = new int[source.length];
+        for (int style = PixelProcessor.STYLE_GRAY; style <= PixelProcessor.STYLE_BURN_IN;
+                style++) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 20; run++) {
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                long start = System.nanoTime();
+                PixelProcessor.processPixels(pixels, SIZE, style);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            assertTrue(String.format(Locale.US, "style %d: %.2f ms for %dx%d",
+                    style, best / 1e6, SIZE, SIZE), best < FRAME_NANOS);
+        }
+    }
+
+    private static void assertWithinBudget(int style, int litPercent) {
+        Random random = new Random(2);
+        int[][] images = {
+                filled(WHITE),
+                filled(0xFF808080),
+                randomPixels(SIZE, SIZE, random),
+        };
+        for (int[] pixels : images) {
+            PixelProcessor.processPixels(pixels, SIZE, style);
+            int lit = 0;
+            for (int pixel : pixels) {
+                if (pixel == WHITE) {
+                    lit++;
+                } else {
+                    assertEquals(BLACK, pixel);
+                }
+            }
+            float litFraction = lit / (float) pixels.length;
+            assertTrue("lit " + litFraction, litFraction <= litPercent / 100f);
+            /* Flat images can only light whole dither levels, but none may go blank. */
+            assertTrue("lit " + litFraction, litFraction >= litPercent / 100f - 1 / 16f);
+        }
+    }
+
+    private static int[] filled(int color) {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, color);
+        return pixels;
+    }
+
+    private static int[] randomPixels(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,136 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QualityGovernorTest {
+
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(30);
+    private static final long MEDIUM_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private boolean mPowerSave;
+    private int mBatteryLevel = 80;
+    private QualityGovernor mGovernor;
+
+    @Before
+    public void setUp() {
+        mGovernor = new QualityGovernor(new QualityGovernor.PowerState() {
+            @Override
+            public boolean isPowerSaveMode() {
+                return mPowerSave;
+            }
+
+            @Override
+            public int getBatteryLevel() {
+                return mBatteryLevel;
+            }
+        });
+    }
+
+    @Test
+    public void staysFullWhileFramesAreCheap() {
+        assertEquals(QualityGovernor.TIER_FULL, render(20, FAST_NANOS));
+    }
+
+    @Test
+    public void waitsForFullWindowBeforeSteppingDown() {
+        assertEquals(QualityGovernor.TIER_FULL, render(3, SLOW_NANOS));
+        assertEquals(QualityGovernor.TIER_AA_ONLY, render(1, SLOW_NANOS));
+    }
+
+    @Test
+    public void stepsDownOneTierPerWindow() {
+        assertEquals(QualityGovernor.TIER_AA_ONLY, render(4, SLOW_NANOS));
+        assertEquals(QualityGovernor.TIER_AA_ONLY, render(3, SLOW_NANOS));
+        assertEquals(QualityGovernor.TIER_FLAT, render(1, SLOW_NANOS));
+        assertEquals(QualityGovernor.TIER_FLAT, render(20, SLOW_NANOS));
+    }
+
+    @Test
+    public void stepsBackUpWhenFramesGetCheap() {
+        render(4, SLOW_NANOS);
+        /* Full was too slow, so it is held off for two windows. */
+        assertEquals(QualityGovernor.TIER_AA_ONLY, render(7, FAST_NANOS));
+        assertEquals(QualityGovernor.TIER_FULL, render(1, FAST_NANOS));
+        /* Fast at full again, so a later step down starts over with the shortest hold-off. */
+        render(4, FAST_NANOS);
+        render(4, SLOW_NANOS);
+        assertEquals(QualityGovernor.TIER_FULL, render(8, FAST_NANOS));
+    }
+
+    @Test
+    public void doesNotFlapBetweenSlowAndFastTier() {
+        /* Full costs 20ms, over the step down threshold, and aa only 4ms, under step up. */
+        long fullNanos = TimeUnit.MILLISECONDS.toNanos(20);
+        long aaOnlyNanos = TimeUnit.MILLISECONDS.toNanos(4);
+        int fullFrames = 0;
+        int changes = 0;
+        int tier = mGovernor.getTier();
+        for (int i = 0; i < 1000; i++) {
+            boolean full = tier == QualityGovernor.TIER_FULL;
+            if (full) {
+                fullFrames++;
+            }
+            int next = mGovernor.onFrameRendered(full ? fullNanos : aaOnlyNanos);
+            if (next != tier) {
+                changes++;
+            }
+            tier = next;
+        }
+        /* Without a hold-off, the tier changed every 4 frames and full took half of them. */
+        assertTrue("changes " + changes, changes <= 16);
+        assertTrue("full frames " + fullFrames, fullFrames <= 40);
+    }
+
+    @Test
+    public void holdsTierBetweenThresholds() {
+        render(4, SLOW_NANOS);
+        assertEquals(QualityGovernor.TIER_AA_ONLY, render(20, MEDIUM_NANOS));
+    }
+
+    @Test
+    public void capsTierInPowerSaveMode() {
+        mPowerSave = true;
+        assertEquals(QualityGovernor.TIER_AA_ONLY, render(1, FAST_NANOS));
+        mPowerSave = false;
+        assertEquals(QualityGovernor.TIER_FULL, render(1, FAST_NANOS));
+    }
+
+    @Test
+    public void ignoresCostOfFramesHeldDownByPowerState() {
+        mPowerSave = true;
+        render(20, SLOW_NANOS);
+        mPowerSave = false;
+        assertEquals(QualityGovernor.TIER_FULL, render(1, FAST_NANOS));
+    }
+
+    @Test
+    public void goesFlatOnLowBatteryWithHysteresis() {
+        mBatteryLevel = 15;
+        assertEquals(QualityGovernor.TIER_FLAT, render(1, FAST_NANOS));
+        mBatteryLevel = 19;
+        assertEquals(QualityGovernor.TIER_FLAT, render(1, FAST_NANOS));
+        mBatteryLevel = 20;
+        assertEquals(QualityGovernor.TIER_FULL, render(1, FAST_NANOS));
+    }
+
+    @Test
+    public void ignoresUnknownBatteryLevel() {
+        mBatteryLevel = -1;
+        assertEquals(QualityGovernor.TIER_FULL, render(1, FAST_NANOS));
+    }
+
+    private int render(int frames, long costNanos) {
+        int tier = mGovernor.getTier();
+        for (int i = 0; i < frames; i++) {
+            tier = mGovernor.onFrameRendered(costNanos);
+        }
+        return tier;
+    }
+}
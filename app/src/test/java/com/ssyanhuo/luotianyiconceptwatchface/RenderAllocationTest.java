@@ -0,0 +1,106 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.lang.management.ManagementFactory;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails if composing a frame starts allocating, like {@link FrameAllocationTest} does for the
+ * bookkeeping around it. Every minute of the cycle misses the frame cache and paints a new hour
+ * hand sprite, so this covers the full draw path, on Robolectric's native canvas.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class RenderAllocationTest {
+
+    private static final int SIZE = 320;
+    /* One 12 hour cycle, so every hour numeral and hand angle is drawn. */
+    private static final int FRAMES = 12 * 60;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+    private long mNowMs;
+    private AssetLoader mLoader;
+    private ConceptWatchFaceRenderer mRenderer;
+    private Bitmap mScreen;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Context context = RuntimeEnvironment.getApplication();
+        mLoader = new AssetLoader(context, new AssetRegistry());
+        mRenderer = new ConceptWatchFaceRenderer(new FrameStats());
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+        mRenderer.setAssets(mLoader.loadAssets(SIZE, SIZE, PixelProcessor.STYLE_GRAY));
+        mScreen = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    }
+
+    @After
+    public void tearDown() {
+        if (mRenderer != null) {
+            mRenderer.release();
+            mLoader.release();
+            mScreen.recycle();
+        }
+    }
+
+    @Test
+    public void composingFramesDoesNotAllocate() {
+        assertNoAllocation(ModeState.INTERACTIVE);
+    }
+
+    @Test
+    public void composingAmbientFramesDoesNotAllocate() {
+        assertNoAllocation(ModeState.INTERACTIVE.withAmbient(true));
+    }
+
+    private void assertNoAllocation(ModeState mode) {
+        TimeSource timeSource = new TimeSource(new TimeSource.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return mNowMs;
+            }
+        }, TimeZone.getTimeZone("UTC"));
+        Canvas canvas = new Canvas(mScreen);
+
+        /* Warm up, so cached layers, glyphs and the JIT are not counted. */
+        runFrames(timeSource, canvas, mode);
+        long before = getAllocatedBytes();
+        runFrames(timeSource, canvas, mode);
+        long allocated = getAllocatedBytes() - before;
+        /* As in FrameAllocationTest, one object per frame would be at least 16 bytes each. */
+        assertTrue("bytes allocated over " + FRAMES + " frames: " + allocated,
+                allocated < FRAMES);
+    }
+
+    private void runFrames(TimeSource timeSource, Canvas canvas, ModeState mode) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            mNowMs += 60000;
+            mRenderer.render(canvas, timeSource.update(), mode);
+        }
+    }
+
+    private long getAllocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
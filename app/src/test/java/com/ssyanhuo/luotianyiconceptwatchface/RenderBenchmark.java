@@ -0,0 +1,146 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Times the render stages over a 12 hour cycle on Robolectric's native canvas and writes the
+ * {@link FrameStats} of each mode to build/reports/benchmark. Only runs with -Pbenchmark; the
+ * numbers are for comparing changes on one machine, not for what a watch would take.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class RenderBenchmark {
+
+    /* Surface size of a large round watch. */
+    private static final int SIZE = 454;
+    /* One 12 hour cycle, so every frame misses the frame cache. */
+    private static final int FRAMES = 12 * 60;
+
+    private static final int[] INTERACTIVE_STAGES = {
+            FrameStats.STAGE_FRAME, FrameStats.STAGE_HOUR_HAND, FrameStats.STAGE_DIAL,
+            FrameStats.STAGE_HOUR_NUMBER, FrameStats.STAGE_MINUTE_HAND, FrameStats.STAGE_LOGO,
+            FrameStats.STAGE_BLIT
+    };
+    private static final int[] REDUCED_AMBIENT_STAGES = {
+            FrameStats.STAGE_FRAME, FrameStats.STAGE_AMBIENT, FrameStats.STAGE_BLIT
+    };
+
+    private long mNowMs;
+    private FrameStats mStats;
+    private AssetLoader mLoader;
+    private ConceptWatchFaceRenderer mRenderer;
+    private Bitmap mScreen;
+
+    @BeforeClass
+    public static void enableTiming() {
+        FrameStats.setEnabled(true);
+    }
+
+    @AfterClass
+    public static void disableTiming() {
+        FrameStats.setEnabled(false);
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue("run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+        Context context = RuntimeEnvironment.getApplication();
+        mStats = new FrameStats();
+        mLoader = new AssetLoader(context, new AssetRegistry());
+        mRenderer = new ConceptWatchFaceRenderer(mStats);
+        mRenderer.setSurfaceSize(SIZE, SIZE);
+        mRenderer.setAssets(mLoader.loadAssets(SIZE, SIZE, PixelProcessor.STYLE_GRAY));
+        mScreen = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    }
+
+    @After
+    public void tearDown() {
+        if (mRenderer != null) {
+            mRenderer.release();
+            mLoader.release();
+            mScreen.recycle();
+        }
+    }
+
+    @Test
+    public void interactive() throws IOException {
+        benchmark("interactive", ModeState.INTERACTIVE, INTERACTIVE_STAGES);
+    }
+
+    @Test
+    public void interactiveAntiAliasOnly() throws IOException {
+        benchmark("interactive-aa-only",
+                ModeState.INTERACTIVE.withQuality(QualityGovernor.TIER_AA_ONLY),
+                INTERACTIVE_STAGES);
+    }
+
+    @Test
+    public void ambient() throws IOException {
+        benchmark("ambient", ModeState.INTERACTIVE.withAmbient(true), INTERACTIVE_STAGES);
+    }
+
+    @Test
+    public void reducedAmbient() throws IOException {
+        benchmark("reduced-ambient",
+                ModeState.INTERACTIVE.withAmbient(true).withProperties(true, false),
+                REDUCED_AMBIENT_STAGES);
+    }
+
+    private void benchmark(String name, ModeState mode, int[] stages) throws IOException {
+        TimeSource timeSource = new TimeSource(new TimeSource.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return mNowMs;
+            }
+        }, TimeZone.getTimeZone("UTC"));
+        Canvas canvas = new Canvas(mScreen);
+
+        /* Warm up, so cached layers, glyphs and the JIT are not timed. */
+        runFrames(timeSource, canvas, mode);
+        mStats.reset();
+        runFrames(timeSource, canvas, mode);
+
+        File dir = new File("build/reports/benchmark");
+        dir.mkdirs();
+        PrintWriter writer = new PrintWriter(new FileWriter(new File(dir, name + ".txt")));
+        try {
+            mStats.dump("", writer);
+        } finally {
+            writer.close();
+        }
+        for (int stage : stages) {
+            assertEquals("frames timed in stage " + stage,
+                    FRAMES, mStats.getStage(stage).getCount());
+        }
+    }
+
+    private void runFrames(TimeSource timeSource, Canvas canvas, ModeState mode) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            mNowMs += 60000;
+            mRenderer.render(canvas, timeSource.update(), mode);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TapGestureDetectorTest {
+
+    private static final int TAP_COUNT = 4;
+    private static final long WINDOW_MS = 1000;
+
+    private TapGestureDetector mDetector;
+
+    @Before
+    public void setUp() {
+        mDetector = new TapGestureDetector(TAP_COUNT, WINDOW_MS);
+    }
+
+    @Test
+    public void recognizesTapsWithinWindow() {
+        assertFalse(mDetector.onTap(100));
+        assertFalse(mDetector.onTap(200));
+        assertFalse(mDetector.onTap(300));
+        assertTrue(mDetector.onTap(400));
+    }
+
+    @Test
+    public void windowIsInclusive() {
+        mDetector.onTap(0);
+        mDetector.onTap(10);
+        mDetector.onTap(20);
+        assertTrue(mDetector.onTap(WINDOW_MS));
+    }
+
+    @Test
+    public void rejectsTapsSpreadOverMoreThanWindow() {
+        mDetector.onTap(0);
+        mDetector.onTap(400);
+        mDetector.onTap(800);
+        assertFalse(mDetector.onTap(WINDOW_MS + 1));
+    }
+
+    @Test
+    public void slidesWindowOverOldTaps() {
+        /* The first tap is too old, but the last four are close enough. */
+        mDetector.onTap(0);
+        mDetector.onTap(900);
+        mDetector.onTap(1000);
+        assertFalse(mDetector.onTap(1100));
+        assertTrue(mDetector.onTap(1200));
+    }
+
+    @Test
+    public void consumesTapsOfRecognizedGesture() {
+        for (int i = 0; i < TAP_COUNT; i++) {
+            mDetector.onTap(i);
+        }
+        for (int i = 0; i < TAP_COUNT - 1; i++) {
+            assertFalse(mDetector.onTap(TAP_COUNT + i));
+        }
+        assertTrue(mDetector.onTap(2 * TAP_COUNT));
+    }
+
+    @Test
+    public void resetForgetsTaps() {
+        mDetector.onTap(0);
+        mDetector.onTap(1);
+        mDetector.onTap(2);
+        mDetector.reset();
+        assertFalse(mDetector.onTap(3));
+    }
+}
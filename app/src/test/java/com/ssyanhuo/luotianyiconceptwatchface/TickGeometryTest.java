@@ -0,0 +1,77 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TickGeometryTest {
+
+    private static final float CENTER = 227;
+    private static final float EPSILON = 1e-3f;
+
+    private final float[] mHourLines = new float[TickGeometry.HOUR_TICK_COUNT * 4];
+    private final float[] mMinuteLines = new float[TickGeometry.MINUTE_TICK_COUNT * 4];
+
+    @Test
+    public void placesHourTicksAtEveryHourButTwelve() {
+        TickGeometry.compute(CENTER, CENTER, mHourLines, mMinuteLines);
+        List<Integer> hours = new ArrayList<>();
+        for (int i = 0; i < mHourLines.length; i += 4) {
+            hours.add(Math.round(getAngle(mHourLines[i + 2], mHourLines[i + 3]) / 30));
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), hours);
+    }
+
+    @Test
+    public void leavesMinuteTicksOffHoursAndAroundLogo() {
+        TickGeometry.compute(CENTER, CENTER, mHourLines, mMinuteLines);
+        List<Integer> minutes = new ArrayList<>();
+        for (int i = 0; i < mMinuteLines.length; i += 4) {
+            minutes.add(Math.round(getAngle(mMinuteLines[i + 2], mMinuteLines[i + 3]) / 6));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int minute = 2; minute <= 58; minute++) {
+            if (minute % 5 != 0) {
+                expected.add(minute);
+            }
+        }
+        assertEquals(expected, minutes);
+    }
+
+    @Test
+    public void runsTicksBetweenInnerAndOuterRadius() {
+        TickGeometry.compute(CENTER, CENTER, mHourLines, mMinuteLines);
+        for (int i = 0; i < mHourLines.length; i += 4) {
+            assertEquals(CENTER - 22, getRadius(mHourLines[i], mHourLines[i + 1]), EPSILON);
+            assertEquals(CENTER - 4, getRadius(mHourLines[i + 2], mHourLines[i + 3]), EPSILON);
+        }
+        for (int i = 0; i < mMinuteLines.length; i += 4) {
+            assertEquals(CENTER - 16, getRadius(mMinuteLines[i], mMinuteLines[i + 1]), EPSILON);
+            assertEquals(CENTER - 4, getRadius(mMinuteLines[i + 2], mMinuteLines[i + 3]), EPSILON);
+        }
+    }
+
+    @Test
+    public void scalesWithSurfaceSize() {
+        float center = 160;
+        TickGeometry.compute(center, center, mHourLines, mMinuteLines);
+        /* The 3 o'clock tick is horizontal, right of the center. */
+        assertEquals(center + center - 22, mHourLines[8], EPSILON);
+        assertEquals(center, mHourLines[9], EPSILON);
+        assertEquals(center + center - 4, mHourLines[10], EPSILON);
+    }
+
+    /* Clockwise angle from 12 o'clock in degrees, 0-360. */
+    private static float getAngle(float x, float y) {
+        double degrees = Math.toDegrees(Math.atan2(x - CENTER, CENTER - y));
+        return (float) (degrees < 0 ? degrees + 360 : degrees);
+    }
+
+    private static float getRadius(float x, float y) {
+        return (float) Math.hypot(x - CENTER, y - CENTER);
+    }
+}
@@ -0,0 +1,103 @@
+package com.ssyanhuo.luotianyiconceptwatchface;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeSourceTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    /* 2019-03-10 07:00 UTC, 02:00 in New York, when clocks go from EST to EDT. */
+    private static final long DST_START_MS = 1552201200000L;
+
+    private long mNowMs;
+
+    private final TimeSource.Clock mClock = new TimeSource.Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNowMs;
+        }
+    };
+
+    @Test
+    public void splitsUtcTimeIntoDialHourAndMinute() {
+        TimeSource source = new TimeSource(mClock, UTC);
+        mNowMs = TimeUnit.HOURS.toMillis(15) + TimeUnit.MINUTES.toMillis(42);
+        WatchTime time = source.update();
+        assertEquals(3, time.hour);
+        assertEquals(42, time.minute);
+        assertEquals(mNowMs, time.millis);
+    }
+
+    @Test
+    public void showsNoonAndMidnightAsTwelve() {
+        TimeSource source = new TimeSource(mClock, UTC);
+        mNowMs = TimeUnit.HOURS.toMillis(12);
+        assertEquals(0, source.update().hour);
+        assertEquals(12, source.update().getDisplayHour());
+    }
+
+    @Test
+    public void handlesTimesBeforeEpoch() {
+        TimeSource source = new TimeSource(mClock, UTC);
+        mNowMs = -TimeUnit.MINUTES.toMillis(1);
+        WatchTime time = source.update();
+        assertEquals(11, time.hour);
+        assertEquals(59, time.minute);
+    }
+
+    @Test
+    public void appliesQuarterHourOffsets() {
+        /* UTC+05:45, so 07:00 UTC is 12:45. */
+        TimeSource source = new TimeSource(mClock, TimeZone.getTimeZone("Asia/Kathmandu"));
+        mNowMs = DST_START_MS;
+        WatchTime time = source.update();
+        assertEquals(0, time.hour);
+        assertEquals(45, time.minute);
+    }
+
+    @Test
+    public void followsDstTransition() {
+        TimeSource source = new TimeSource(mClock, NEW_YORK);
+        mNowMs = DST_START_MS - TimeUnit.MINUTES.toMillis(1);
+        WatchTime time = source.update();
+        assertEquals(1, time.hour);
+        assertEquals(59, time.minute);
+
+        mNowMs = DST_START_MS;
+        time = source.update();
+        assertEquals(3, time.hour);
+        assertEquals(0, time.minute);
+    }
+
+    @Test
+    public void dropsCachedOffsetWhenTimeZoneChanges() {
+        TimeSource source = new TimeSource(mClock, UTC);
+        mNowMs = TimeUnit.HOURS.toMillis(1);
+        assertEquals(1, source.update().hour);
+
+        source.setTimeZone(TimeZone.getTimeZone("GMT+02:00"));
+        assertEquals(3, source.update().hour);
+    }
+
+    @Test
+    public void matchesCalendarAcrossYear() {
+        TimeSource source = new TimeSource(mClock, NEW_YORK);
+        Calendar calendar = Calendar.getInstance(NEW_YORK);
+        long step = TimeUnit.MINUTES.toMillis(7);
+        for (long t = DST_START_MS - TimeUnit.DAYS.toMillis(200);
+                t < DST_START_MS + TimeUnit.DAYS.toMillis(300); t += step) {
+            mNowMs = t;
+            calendar.setTimeInMillis(t);
+            WatchTime time = source.update();
+            assertEquals("hour at " + t, calendar.get(Calendar.HOUR), time.hour);
+            assertEquals("minute at " + t, calendar.get(Calendar.MINUTE), time.minute);
+        }
+    }
+}